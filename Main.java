@@ -1,20 +1,29 @@
+import commands.CommandDispatcher;
+import commands.CommandReader;
+import concurrent.ParallelReplayer;
 import datastructures.HashTable;
+import datastructures.IdDictionary;
+import models.ContentArena;
+import models.FeedCache;
+import models.FollowGraph;
+import models.LikeCoalescer;
 import models.Post;
 import models.User;
+import output.OutputWriter;
+import persistence.Journal;
+import persistence.Snapshot;
+import stats.Statistics;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import javax.management.JMException;
 import java.io.IOException;
-import java.io.File;
-import java.util.Scanner;
-
-import static actions.Actions.*;
 
 /**
  * Entry point for the application. Handles reading input commands from a file,
  * performing user and post actions, and writing results to an output file.
  */
 public class Main {
+    private static final int REPLAY_WINDOW = 1 << 16; // Commands analysed together in parallel replay
+
     /**
      * Main method for processing user commands from an input file and writing results to an output file.
      *
@@ -22,68 +31,120 @@ public class Main {
      *             1. The path to the input file containing commands.
      *             2. The path to the output file where results should be written.
      * @throws IOException if there is an issue reading from or writing to files.
+     * @throws JMException if the statistics cannot be exposed over JMX.
+     * @throws IllegalArgumentException if both journaling and parallel replay are requested.
      */
-    public static void main(String[] args) throws IOException {
-        // Open the output file for writing results
-        BufferedWriter writer = new BufferedWriter(new FileWriter(args[1]));
+    public static void main(String[] args) throws IOException, JMException {
+        // Replay the commands on all cores when run with -Dreplay.parallel=true
+        boolean parallel = Boolean.getBoolean("replay.parallel");
+
+        // Journal the commands that change the model when run with -Djournal.path=path, syncing
+        // every -Djournal.syncEvery records or -Djournal.syncMillis milliseconds
+        String journalPath = System.getProperty("journal.path");
+        if (journalPath != null && parallel) {
+            // Refuse before any file is opened rather than run without the durability asked for
+            throw new IllegalArgumentException("Parallel replay cannot journal; drop -Djournal.path or -Dreplay.parallel");
+        }
+
+        // Open the output file for writing results, e.g. -Doutput.async=true to write from a background thread
+        OutputWriter writer = new OutputWriter(args[1], Boolean.getBoolean("output.async"));
 
         // Open the input file containing user commands
-        File actionsFile = new File(args[0]);
-
-        Scanner inputFile = new Scanner(actionsFile);
-
-        // Initialize hash tables for users and posts
-        HashTable<String, User> users = new HashTable<>();
-        HashTable<String, Post> posts = new HashTable<>();
-
-        // Process each command in the input file
-        while (inputFile.hasNextLine()) {
-            String line = inputFile.nextLine();
-            String[] lineParts = line.split(" ");
-            String method = lineParts[0];
-
-            if (method.equals("create_user")) {
-                String userID = lineParts[1];
-                createUser(users, userID, writer);
-            } else if (method.equals("follow_user")) {
-                String userID1 = lineParts[1];
-                String userID2 = lineParts[2];
-                followUser(users, userID1, userID2, writer);
-            } else if (method.equals("unfollow_user")) {
-                String userID1 = lineParts[1];
-                String userID2 = lineParts[2];
-                unfollowUser(users, userID1, userID2, writer);
-            } else if (method.equals("create_post")) {
-                String userID = lineParts[1];
-                String postID = lineParts[2];
-                String postContent = lineParts[3];
-                createPost(users, posts, userID, postID, postContent, writer);
-            } else if (method.equals("see_post")) {
-                String userID = lineParts[1];
-                String postID = lineParts[2];
-                seePost(users, posts, userID, postID, writer);
-            } else if (method.equals("see_all_posts_from_user")) {
-                String viewerId = lineParts[1];
-                String viewedId = lineParts[2];
-                seeAllPosts(users, viewerId, viewedId, writer);
-            } else if (method.equals("toggle_like")) {
-                String userID = lineParts[1];
-                String postID = lineParts[2];
-                toggleLike(users, posts, userID, postID, writer);
-            } else if (method.equals("generate_feed")) {
-                String userID = lineParts[1];
-                int feedSize = Integer.parseInt(lineParts[2]);
-                generateFeed(users, userID, feedSize, writer);
-            } else if (method.equals("scroll_through_feed")) {
-                String userID = lineParts[1];
-                scrollThroughFeed(users, userID, lineParts, writer);
-            } else if (method.equals("sort_posts")) {
-                String userID = lineParts[1];
-                sortPosts(users, userID, writer);
+        CommandReader inputFile = new CommandReader(args[0]);
+
+        Journal journal = journalPath == null ? null : new Journal(journalPath,
+                Integer.getInteger("journal.syncEvery", 1024), Long.getLong("journal.syncMillis", 10));
+
+        // Start from a snapshot when run with -Dsnapshot.load=path, sizing the tables from its header;
+        // a journal continuing from a checkpoint starts from the checkpoint instead
+        String snapshotPath = journal != null && journal.getCheckpointPath() != null
+                ? journal.getCheckpointPath() : System.getProperty("snapshot.load");
+        Snapshot snapshot = snapshotPath == null ? null : new Snapshot(snapshotPath);
+
+        // Keep post content off the heap with -Dcontent.offheap=true, in slabs of -Dcontent.slabBytes bytes
+        if (Boolean.getBoolean("content.offheap")) {
+            Post.setContentArena(new ContentArena(Integer.getInteger("content.slabBytes", 16 << 20)));
+        }
+
+        if (parallel) {
+            ParallelReplayer replayer = new ParallelReplayer(Runtime.getRuntime().availableProcessors(), REPLAY_WINDOW, writer);
+            if (snapshot != null) {
+                replayer.load(snapshot);
+                snapshot.close();
             }
+            replayer.replay(inputFile);
+            replayer.close();
+            writer.close();
+            inputFile.close();
+            return;
+        }
+
+        int expectedUsers = snapshot == null ? 0 : snapshot.getUserCount();
+        int expectedPosts = snapshot == null ? 0 : snapshot.getPostCount();
+
+        // Initialize hash tables for users and posts, e.g. -Dhashtable.engine=OPEN_ADDRESSING to compare engines
+        HashTable.Engine engine = HashTable.Engine.valueOf(System.getProperty("hashtable.engine", "CHAINING"));
+        HashTable<String, User> users = new HashTable<>(engine, expectedUsers);
+        HashTable<String, Post> posts = new HashTable<>(engine, expectedPosts);
+
+        // Push new posts into follower inboxes, e.g. -Dfeed.push.threshold=1000 for authors with up to 1000 followers
+        User.setPushThreshold(Integer.getInteger("feed.push.threshold", -1));
+
+        // Cache generated feeds in up to -Dfeed.cache.bytes bytes, serving them until a change invalidates them
+        long feedCacheBytes = Long.getLong("feed.cache.bytes", 0);
+        if (feedCacheBytes > 0) {
+            User.setFeedCache(new FeedCache(feedCacheBytes));
+        }
+
+        // Coalesce like count changes, e.g. -Dlikes.batch=64 to reposition a post once per 64 likes and unlikes
+        int likesBatch = Integer.getInteger("likes.batch", 0);
+        if (likesBatch > 0) {
+            User.setLikeCoalescer(new LikeCoalescer(likesBatch));
+        }
+
+        // Assign dense integer ids to users and posts as they are created
+        IdDictionary<User> userIds = new IdDictionary<>(expectedUsers);
+        IdDictionary<Post> postIds = new IdDictionary<>(expectedPosts);
+
+        // Record follows as compact adjacency lists in both directions
+        FollowGraph graph = new FollowGraph(userIds);
+
+        if (snapshot != null) {
+            snapshot.load(users, posts, userIds, postIds, graph);
+            snapshot.close();
+        }
+
+        // Recover the commands journaled after the checkpoint; their output was written before the crash
+        if (journal != null) {
+            OutputWriter discarded = new OutputWriter();
+            journal.replay(new CommandDispatcher(users, posts, userIds, postIds, graph, null, null, discarded), discarded);
+        }
+
+        // Time every command for the stats command; -Dstats.jmx=true also exposes the statistics as an
+        // MBean and -Dstats.dump=path writes them to a file every -Dstats.dumpMillis milliseconds
+        Statistics statistics = new Statistics(users, posts);
+        if (Boolean.getBoolean("stats.jmx")) {
+            statistics.registerMBean();
+        }
+        String dumpPath = System.getProperty("stats.dump");
+        if (dumpPath != null) {
+            statistics.startDump(dumpPath, Long.getLong("stats.dumpMillis", 10000));
+        }
+
+        // Process each command in the input file through the opcode dispatch table
+        CommandDispatcher dispatcher = new CommandDispatcher(users, posts, userIds, postIds, graph, journal, statistics, writer);
+        while (inputFile.nextLine()) {
+            dispatcher.dispatch(inputFile);
+        }
+        if (User.getLikeCoalescer() != null) {
+            User.getLikeCoalescer().flush(); // Leave the model consistent for the journal and statistics
         }
 
         // Close resources after processing
+        statistics.close();
+        if (journal != null) {
+            journal.close();
+        }
         writer.close();
         inputFile.close();
     }
@@ -1,10 +1,16 @@
 package actions;
 
 import datastructures.HashTable;
+import datastructures.IdDictionary;
+import models.FollowGraph;
 import models.Post;
 import models.User;
+import output.OutputWriter;
+import output.Template;
+import persistence.Journal;
+import persistence.Snapshot;
+import stats.Statistics;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 
@@ -12,25 +18,59 @@ import java.util.ArrayList;
  * Provides static methods for performing user and post-related actions.
  */
 public class Actions {
+    // Precompiled output messages
+    private static final Template CREATED_USER = new Template("Created user with Id %s.\n");
+    private static final Template FOLLOWED = new Template("%s followed %s.\n");
+    private static final Template UNFOLLOWED = new Template("%s unfollowed %s.\n");
+    private static final Template SAW_POST = new Template("%s saw %s.\n");
+    private static final Template SAW_ALL_POSTS = new Template("%s saw all posts of %s.\n");
+    private static final Template CREATE_USER_ERROR = new Template("Some error occurred in create_user.\n");
+    private static final Template FOLLOW_USER_ERROR = new Template("Some error occurred in follow_user.\n");
+    private static final Template UNFOLLOW_USER_ERROR = new Template("Some error occurred in unfollow_user.\n");
+    private static final Template CREATE_POST_ERROR = new Template("Some error occurred in create_post.\n");
+    private static final Template SEE_POST_ERROR = new Template("Some error occurred in see_post.\n");
+    private static final Template SEE_ALL_POSTS_FROM_USER_ERROR = new Template("Some error occurred in see_all_posts_from_user.\n");
+    private static final Template TOGGLE_LIKE_ERROR = new Template("Some error occurred in toggle_like.\n");
+    private static final Template GENERATE_FEED_ERROR = new Template("Some error occurred in generate_feed.\n");
+    private static final Template NEXT_PAGE_ERROR = new Template("Some error occurred in next_page.\n");
+    private static final Template SCROLL_THROUGH_FEED_ERROR = new Template("Some error occurred in scroll_through_feed.\n");
+    private static final Template SORT_POSTS_ERROR = new Template("Some error occurred in sort_posts.\n");
+    private static final Template FOLLOWERS_HEADER = new Template("Followers of %s: %s\n");
+    private static final Template FOLLOWEES_HEADER = new Template("Users followed by %s: %s\n");
+    private static final Template LISTED_USER = new Template("%s\n");
+    private static final Template LIST_FOLLOWERS_ERROR = new Template("Some error occurred in list_followers.\n");
+    private static final Template LIST_FOLLOWEES_ERROR = new Template("Some error occurred in list_followees.\n");
+    private static final Template SAVED_SNAPSHOT = new Template("Saved snapshot to %s.\n");
+    private static final Template LOADED_SNAPSHOT = new Template("Loaded snapshot from %s.\n");
+    private static final Template SAVE_SNAPSHOT_ERROR = new Template("Some error occurred in save_snapshot.\n");
+    private static final Template LOAD_SNAPSHOT_ERROR = new Template("Some error occurred in load_snapshot.\n");
+    private static final Template WROTE_CHECKPOINT = new Template("Wrote checkpoint %s.\n");
+    private static final Template CHECKPOINT_ERROR = new Template("Some error occurred in checkpoint.\n");
+    private static final Template STATS_HEADER = new Template("Statistics:\n");
+    private static final Template STATS_ERROR = new Template("Some error occurred in stats.\n");
 
     /**
      * Creates a new user and adds it to the users hash table.
      *
      * @param users   the hash table of users
+     * @param userIds the dictionary assigning dense ids to users
+     * @param graph   the graph recording follows between users
      * @param userID  the unique identifier for the new user
      * @param writer  the writer used for logging output
      * @throws IOException if an I/O error occurs
      */
-    public static void createUser(HashTable<String, User> users, String userID, BufferedWriter writer) throws IOException {
-        User user = new User(userID);
-
-        // Add the user to the hash table
-        if (!users.put(userID, user)) {
+    public static void createUser(HashTable<String, User> users, IdDictionary<User> userIds, FollowGraph graph, String userID, OutputWriter writer) throws IOException {
+        if (users.containsKey(userID)) {
             // Error if the user already exists
-            writer.write("Some error occurred in create_user.\n");
-        } else {
-            writer.write(String.format("Created user with Id %s.\n", userID));
+            CREATE_USER_ERROR.write(writer);
+            return;
         }
+
+        // Register the user's dense id before the user becomes reachable through the hash table
+        User user = new User(userID, userIds.nextId(), graph);
+        userIds.add(userID, user);
+        users.put(userID, user);
+        CREATED_USER.write(writer, userID);
     }
 
     /**
@@ -42,32 +82,32 @@ public class Actions {
      * @param writer  the writer used for logging output
      * @throws IOException if an I/O error occurs
      */
-    public static void followUser(HashTable<String, User> users, String userID1, String userID2, BufferedWriter writer) throws IOException {
+    public static void followUser(HashTable<String, User> users, String userID1, String userID2, OutputWriter writer) throws IOException {
         // Check if a user is trying to follow himself
         if (userID1.equals(userID2)) {
-            writer.write("Some error occurred in follow_user.\n");
+            FOLLOW_USER_ERROR.write(writer);
             return;
         }
 
         User followerUser = users.get(userID1);
         if (followerUser == null) {
             // Error if the user doesn't exist
-            writer.write("Some error occurred in follow_user.\n");
+            FOLLOW_USER_ERROR.write(writer);
             return;
         }
 
         User followedUser = users.get(userID2);
         if (followedUser == null) {
-            writer.write("Some error occurred in follow_user.\n");
+            FOLLOW_USER_ERROR.write(writer);
             return;
         }
 
         // Attempt to follow the user
         if (!followerUser.follow(followedUser)) {
             // Error if the user is already followed
-            writer.write("Some error occurred in follow_user.\n");
+            FOLLOW_USER_ERROR.write(writer);
         } else {
-            writer.write(String.format("%s followed %s.\n", userID1, userID2));
+            FOLLOWED.write(writer, userID1, userID2);
         }
     }
 
@@ -80,30 +120,30 @@ public class Actions {
      * @param writer  the writer used for logging output
      * @throws IOException if an I/O error occurs
      */
-    public static void unfollowUser(HashTable<String, User> users, String userID1, String userID2, BufferedWriter writer) throws IOException {
+    public static void unfollowUser(HashTable<String, User> users, String userID1, String userID2, OutputWriter writer) throws IOException {
         // Check if a user is trying to unfollow himself
         if (userID1.equals(userID2)) {
-            writer.write("Some error occurred in unfollow_user.\n");
+            UNFOLLOW_USER_ERROR.write(writer);
             return;
         }
 
         User followingUser = users.get(userID1);
         if (followingUser == null) {
-            writer.write("Some error occurred in unfollow_user.\n");
+            UNFOLLOW_USER_ERROR.write(writer);
             return;
         }
 
         User followedUser = users.get(userID2);
         if (followedUser == null) {
-            writer.write("Some error occurred in unfollow_user.\n");
+            UNFOLLOW_USER_ERROR.write(writer);
             return;
         }
 
         if (!followingUser.unfollow(followedUser)) {
             // Error if the user is not already followed
-            writer.write("Some error occurred in unfollow_user.\n");
+            UNFOLLOW_USER_ERROR.write(writer);
         } else {
-            writer.write(String.format("%s unfollowed %s.\n", userID1, userID2));
+            UNFOLLOWED.write(writer, userID1, userID2);
         }
     }
 
@@ -112,24 +152,27 @@ public class Actions {
      *
      * @param users       the hash table of users
      * @param posts       the hash table of posts
+     * @param postIds     the dictionary assigning dense ids to posts
      * @param userID      the ID of the user creating the post
      * @param postID      the unique identifier for the post
      * @param postContent the content of the post
      * @param writer      the writer used for logging output
      * @throws IOException if an I/O error occurs
      */
-    public static void createPost(HashTable<String, User> users, HashTable<String, Post> posts, String userID, String postID, String postContent, BufferedWriter writer) throws IOException {
+    public static void createPost(HashTable<String, User> users, HashTable<String, Post> posts, IdDictionary<Post> postIds, String userID, String postID, String postContent, OutputWriter writer) throws IOException {
         User user = users.get(userID);
 
-        Post post = new Post(userID, postID, postContent);
+        // Error if the user doesn't exist or the post ID already exists, before the content is stored
+        if (user == null || posts.containsKey(postID)) {
+            CREATE_POST_ERROR.write(writer);
+            return;
+        }
 
         // Add the post to the hash table and associate it with the user
-        if (user != null && posts.put(postID, post)) {
-            user.createPost(post, writer);
-        } else {
-            // Error if the user doesn't exist or the post ID already exists
-            writer.write("Some error occurred in create_post.\n");
-        }
+        Post post = new Post(userID, postID, postContent, postIds.nextId());
+        posts.put(postID, post);
+        postIds.add(postID, post);
+        user.createPost(post, writer);
     }
 
     /**
@@ -142,7 +185,7 @@ public class Actions {
      * @param writer  the writer used for logging output
      * @throws IOException if an I/O error occurs
      */
-    public static void seePost(HashTable<String, User> users, HashTable<String, Post> posts, String userID, String postID, BufferedWriter writer) throws IOException {
+    public static void seePost(HashTable<String, User> users, HashTable<String, Post> posts, String userID, String postID, OutputWriter writer) throws IOException {
         User user = users.get(userID);
 
         Post post = posts.get(postID);
@@ -150,10 +193,10 @@ public class Actions {
         // Mark the post as seen if both the user and post exist
         if (user != null && post != null) {
             user.seePost(post);
-            writer.write(String.format("%s saw %s.\n", userID, post.getPostID()));
+            SAW_POST.write(writer, userID, post.getPostID());
         } else {
             // Error if the user or post doesn't exist
-            writer.write("Some error occurred in see_post.\n");
+            SEE_POST_ERROR.write(writer);
         }
     }
 
@@ -166,25 +209,24 @@ public class Actions {
      * @param writer    the writer used for logging output
      * @throws IOException if an I/O error occurs
      */
-    public static void seeAllPosts(HashTable<String, User> users, String viewerID, String viewedID, BufferedWriter writer) throws IOException {
+    public static void seeAllPosts(HashTable<String, User> users, String viewerID, String viewedID, OutputWriter writer) throws IOException {
         User viewerUser = users.get(viewerID);
 
         if (viewerUser == null) {
-            writer.write("Some error occurred in see_all_posts_from_user.\n");
+            SEE_ALL_POSTS_FROM_USER_ERROR.write(writer);
             return;
         }
 
         User viewedUser = users.get(viewedID);
         if (viewedUser == null) {
-            writer.write("Some error occurred in see_all_posts_from_user.\n");
+            SEE_ALL_POSTS_FROM_USER_ERROR.write(writer);
             return;
         }
 
-        // Retrieve the posts of the viewed user and mark them as seen by the viewer
-        ArrayList<Post> posts = viewedUser.getPosts();
-        viewerUser.seeAllPosts(posts);
+        // Mark the posts of the viewed user as seen by the viewer
+        viewerUser.seeAllPosts(viewedUser);
 
-        writer.write(String.format("%s saw all posts of %s.\n", viewerID, viewedID));
+        SAW_ALL_POSTS.write(writer, viewerID, viewedID);
     }
 
     /**
@@ -197,7 +239,7 @@ public class Actions {
      * @param writer  the writer used for logging output
      * @throws IOException if an I/O error occurs
      */
-    public static void toggleLike(HashTable<String, User> users, HashTable<String, Post> posts, String userID, String postID, BufferedWriter writer) throws IOException {
+    public static void toggleLike(HashTable<String, User> users, HashTable<String, Post> posts, String userID, String postID, OutputWriter writer) throws IOException {
         User user = users.get(userID);
 
         Post post = posts.get(postID);
@@ -207,7 +249,7 @@ public class Actions {
             user.likePost(post, writer);
         } else {
             // Error if the user or post doesn't exist
-            writer.write("Some error occurred in toggle_like.\n");
+            TOGGLE_LIKE_ERROR.write(writer);
         }
     }
 
@@ -220,37 +262,60 @@ public class Actions {
      * @param writer   the writer used for logging output
      * @throws IOException if an I/O error occurs
      */
-    public static void generateFeed(HashTable<String, User> users, String userID, int feedSize, BufferedWriter writer) throws IOException {
+    public static void generateFeed(HashTable<String, User> users, String userID, int feedSize, OutputWriter writer) throws IOException {
         User user = users.get(userID);
 
         if (user == null) {
             // Error if the user doesn't exist
-            writer.write("Some error occurred in generate_feed.\n");
+            GENERATE_FEED_ERROR.write(writer);
             return;
         }
 
         user.generateFeed(feedSize, writer);
     }
 
+    /**
+     * Writes the next page of a user's feed, resuming after the previous page.
+     *
+     * @param users    the hash table of users
+     * @param userID   the ID of the user paging through the feed
+     * @param pageSize the maximum number of posts to include in the page
+     * @param writer   the writer used for logging output
+     * @throws IOException if an I/O error occurs
+     */
+    public static void nextPage(HashTable<String, User> users, String userID, int pageSize, OutputWriter writer) throws IOException {
+        User user = users.get(userID);
+
+        if (user == null) {
+            // Error if the user doesn't exist
+            NEXT_PAGE_ERROR.write(writer);
+            return;
+        }
+
+        user.nextPage(pageSize, writer);
+    }
+
     /**
      * Simulates scrolling through a feed for a user.
      *
-     * @param users         the hash table of users
-     * @param userID        the ID of the user scrolling through the feed
-     * @param postCommands  an array of commands representing user actions on posts
-     * @param writer        the writer used for logging output
+     * @param users     the hash table of users
+     * @param userID    the ID of the user scrolling through the feed
+     * @param feedSize  the number of posts the user intends to scroll through
+     * @param likeFlags for each scrolled post, whether the user clicks the like button
+     * @param flagCount the number of valid entries in {@code likeFlags}
+     * @param writer    the writer used for logging output
      * @throws IOException if an I/O error occurs
      */
-    public static void scrollThroughFeed(HashTable<String, User> users, String userID, String[] postCommands, BufferedWriter writer) throws IOException {
+    public static void scrollThroughFeed(HashTable<String, User> users, String userID, int feedSize, boolean[] likeFlags, int flagCount, OutputWriter writer) throws IOException {
         User user = users.get(userID);
 
         if (user == null) {
             // Error if the user doesn't exist
-            writer.write("Some error occurred in scroll_through_feed.\n");
+            SCROLL_THROUGH_FEED_ERROR.write(writer);
             return;
         }
 
-        user.scrollThroughFeed(postCommands, writer);
+        user.scrollThroughFeed(feedSize, likeFlags, flagCount, writer);
     }
 
     /**
@@ -261,15 +326,165 @@ public class Actions {
      * @param writer  the writer used for logging output
      * @throws IOException if an I/O error occurs
      */
-    public static void sortPosts(HashTable<String, User> users, String userID, BufferedWriter writer) throws IOException {
+    public static void sortPosts(HashTable<String, User> users, String userID, OutputWriter writer) throws IOException {
         User user = users.get(userID);
 
         if (user == null) {
             // Error if the user doesn't exist
-            writer.write("Some error occurred in sort_posts.\n");
+            SORT_POSTS_ERROR.write(writer);
             return;
         }
 
         user.sortPosts(writer);
     }
+
+    /**
+     * Lists the users following a user, read from the graph's reverse adjacency.
+     *
+     * @param users  the hash table of users
+     * @param graph  the graph recording follows between users
+     * @param userID the ID of the user whose followers are listed
+     * @param writer the writer used for logging output
+     * @throws IOException if an I/O error occurs
+     */
+    public static void listFollowers(HashTable<String, User> users, FollowGraph graph, String userID, OutputWriter writer) throws IOException {
+        User user = users.get(userID);
+
+        if (user == null) {
+            // Error if the user doesn't exist
+            LIST_FOLLOWERS_ERROR.write(writer);
+            return;
+        }
+
+        FOLLOWERS_HEADER.write(writer, userID, graph.getFollowerCount(user));
+        writeUsers(graph.getFollowers(user), writer);
+    }
+
+    /**
+     * Lists the users a user follows.
+     *
+     * @param users  the hash table of users
+     * @param graph  the graph recording follows between users
+     * @param userID the ID of the user whose followed users are listed
+     * @param writer the writer used for logging output
+     * @throws IOException if an I/O error occurs
+     */
+    public static void listFollowees(HashTable<String, User> users, FollowGraph graph, String userID, OutputWriter writer) throws IOException {
+        User user = users.get(userID);
+
+        if (user == null) {
+            // Error if the user doesn't exist
+            LIST_FOLLOWEES_ERROR.write(writer);
+            return;
+        }
+
+        FOLLOWEES_HEADER.write(writer, userID, graph.getFolloweeCount(user));
+        writeUsers(graph.getFollowees(user), writer);
+    }
+
+    /**
+     * Writes the ID of every listed user on its own line.
+     *
+     * @param listed the users to write
+     * @param writer the writer used for logging output
+     * @throws IOException if an I/O error occurs
+     */
+    private static void writeUsers(ArrayList<User> listed, OutputWriter writer) throws IOException {
+        for (User user : listed) {
+            LISTED_USER.write(writer, user.getUserId());
+        }
+    }
+
+    /**
+     * Saves the whole model to a binary snapshot file.
+     *
+     * @param users   the hash table of users
+     * @param userIds the dictionary assigning dense ids to users
+     * @param postIds the dictionary assigning dense ids to posts
+     * @param path    the path of the snapshot file
+     * @param writer  the writer used for logging output
+     * @throws IOException if an I/O error occurs while logging output
+     */
+    public static void saveSnapshot(HashTable<String, User> users, IdDictionary<User> userIds, IdDictionary<Post> postIds, String path, OutputWriter writer) throws IOException {
+        try {
+            Snapshot.save(path, users, userIds, postIds);
+        } catch (IOException e) {
+            // Error if the file cannot be written
+            SAVE_SNAPSHOT_ERROR.write(writer);
+            return;
+        }
+        SAVED_SNAPSHOT.write(writer, path);
+    }
+
+    /**
+     * Loads a binary snapshot file into the model, which must still be empty.
+     *
+     * @param users   the hash table of users
+     * @param posts   the hash table of posts
+     * @param userIds the dictionary assigning dense ids to users
+     * @param postIds the dictionary assigning dense ids to posts
+     * @param graph   the graph recording follows between users
+     * @param path    the path of the snapshot file
+     * @param writer  the writer used for logging output
+     * @throws IOException if an I/O error occurs while logging output
+     */
+    public static void loadSnapshot(HashTable<String, User> users, HashTable<String, Post> posts, IdDictionary<User> userIds, IdDictionary<Post> postIds, FollowGraph graph, String path, OutputWriter writer) throws IOException {
+        if (userIds.size() != 0) {
+            // Error if the model already holds users
+            LOAD_SNAPSHOT_ERROR.write(writer);
+            return;
+        }
+        try (Snapshot snapshot = new Snapshot(path)) {
+            snapshot.load(users, posts, userIds, postIds, graph);
+        } catch (IOException e) {
+            // Error if the file is missing or corrupt
+            LOAD_SNAPSHOT_ERROR.write(writer);
+            return;
+        }
+        LOADED_SNAPSHOT.write(writer, path);
+    }
+
+    /**
+     * Writes the whole model to a new journal checkpoint and starts an empty journal after it.
+     *
+     * @param users   the hash table of users
+     * @param userIds the dictionary assigning dense ids to users
+     * @param postIds the dictionary assigning dense ids to posts
+     * @param journal the journal of the commands that change the model, or {@code null} if there is none
+     * @param writer  the writer used for logging output
+     * @throws IOException if an I/O error occurs while logging output
+     */
+    public static void checkpoint(HashTable<String, User> users, IdDictionary<User> userIds, IdDictionary<Post> postIds, Journal journal, OutputWriter writer) throws IOException {
+        if (journal == null) {
+            // Error if commands are not journaled
+            CHECKPOINT_ERROR.write(writer);
+            return;
+        }
+        String path;
+        try {
+            path = journal.checkpoint(users, userIds, postIds);
+        } catch (IOException e) {
+            // Error if the checkpoint or the new journal cannot be written
+            CHECKPOINT_ERROR.write(writer);
+            return;
+        }
+        WROTE_CHECKPOINT.write(writer, path);
+    }
+
+    /**
+     * Writes a report of the runtime statistics.
+     *
+     * @param statistics the statistics of the executed commands, or {@code null} if they are not recorded
+     * @param writer     the writer used for logging output
+     * @throws IOException if an I/O error occurs while logging output
+     */
+    public static void stats(Statistics statistics, OutputWriter writer) throws IOException {
+        if (statistics == null) {
+            // Error if statistics are not recorded
+            STATS_ERROR.write(writer);
+            return;
+        }
+        STATS_HEADER.write(writer);
+        writer.append(statistics.getReport());
+    }
 }
@@ -0,0 +1,105 @@
+package benchmarks;
+
+import actions.Actions;
+import models.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code generate_feed} and {@code sort_posts} end to end, from the user lookup to the
+ * formatted output, on a synthetic graph. Both commands leave the model unchanged, so the graph
+ * is built once per trial and the viewers are visited in turn.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeedBenchmark {
+    @Param({"10000"})
+    int users; // Number of users in the graph
+
+    @Param({"20", "200"})
+    int followees; // Number of users each user follows
+
+    @Param({"10"})
+    int postsPerUser; // Number of posts each user writes
+
+    @Param({"10", "100"})
+    int feedSize; // Number of posts requested per feed
+
+    @Param({"-1", "1000"})
+    int pushThreshold; // Largest follower count whose posts are pushed, -1 to pull every feed
+
+    private SyntheticGraph graph; // Graph the commands run on
+    private int cursor; // Index of the next viewer
+
+    /**
+     * Builds the graph.
+     *
+     * @throws IOException if the discarding writer cannot be opened
+     */
+    @Setup
+    public void setUp() throws IOException {
+        User.setPushThreshold(pushThreshold);
+        graph = new SyntheticGraph(users, followees, postsPerUser, postsPerUser, 42);
+    }
+
+    /**
+     * Restores the default feed mode and closes the writer.
+     *
+     * @throws IOException if closing the writer fails
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        User.setPushThreshold(-1);
+        graph.writer.close();
+    }
+
+    /**
+     * Picks the next viewer.
+     *
+     * @return the ID of the viewer
+     */
+    private String nextUser() {
+        String userID = graph.userIDs[cursor];
+        if (++cursor == graph.userIDs.length) {
+            cursor = 0;
+        }
+        return userID;
+    }
+
+    /**
+     * Generates the feed of the next viewer.
+     *
+     * @throws IOException if writing the output fails
+     */
+    @Benchmark
+    public void generateFeed() throws IOException {
+        Actions.generateFeed(graph.users, nextUser(), feedSize, graph.writer);
+    }
+
+    /**
+     * Sorts the posts of the next user by likes.
+     *
+     * @throws IOException if writing the output fails
+     */
+    @Benchmark
+    public void sortPosts() throws IOException {
+        Actions.sortPosts(graph.users, nextUser(), graph.writer);
+    }
+}
@@ -0,0 +1,194 @@
+package benchmarks;
+
+import datastructures.HashTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares every {@link HashTable} engine against {@link HashMap} for filling, looking up and
+ * emptying tables of String keys. The keys are either short sequential IDs as in the command
+ * logs, random alphanumeric strings, or IDs behind a long shared prefix, which makes equality
+ * checks between colliding keys expensive.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashTableBenchmark {
+    /**
+     * The table being measured.
+     */
+    public enum Implementation { CHAINING, OPEN_ADDRESSING, STRIPED, INCREMENTAL, HASH_MAP }
+
+    /**
+     * The shape of the keys.
+     */
+    public enum KeyDistribution { SEQUENTIAL, RANDOM, SHARED_PREFIX }
+
+    @Param({"1000", "100000", "1000000"})
+    int size; // Number of keys in the table
+
+    @Param
+    Implementation implementation; // Table being measured
+
+    @Param
+    KeyDistribution distribution; // Shape of the keys
+
+    private String[] keys; // Keys inserted into the table
+    private String[] lookups; // Equal but distinct key instances in random order, as parsed from input
+    private Table filled; // Table holding every key, for lookups
+    private int cursor; // Index of the next lookup
+
+    /**
+     * The operations shared by both kinds of table.
+     */
+    interface Table {
+        boolean put(String key, Integer value);
+
+        Integer get(String key);
+
+        boolean remove(String key);
+    }
+
+    /**
+     * Generates the keys and fills the lookup table.
+     */
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        keys = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = switch (distribution) {
+                case SEQUENTIAL -> "u" + i;
+                case RANDOM -> randomKey(random, i);
+                case SHARED_PREFIX -> "user-account-identifier-" + i;
+            };
+        }
+        lookups = new String[size];
+        for (int i = 0; i < size; i++) {
+            lookups[i] = new String(keys[i]);
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            String swap = lookups[i];
+            lookups[i] = lookups[j];
+            lookups[j] = swap;
+        }
+        filled = fill();
+    }
+
+    /**
+     * Generates a random alphanumeric key of 8 to 16 characters; the index suffix keeps keys distinct.
+     *
+     * @param random the source of randomness
+     * @param index  the index of the key
+     * @return the key
+     */
+    private static String randomKey(Random random, int index) {
+        String alphabet = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+        StringBuilder key = new StringBuilder();
+        int length = 8 + random.nextInt(9);
+        for (int i = 0; i < length; i++) {
+            key.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return key.append('_').append(index).toString();
+    }
+
+    /**
+     * Creates an empty table of the measured implementation.
+     *
+     * @return the table
+     */
+    private Table newTable() {
+        if (implementation == Implementation.HASH_MAP) {
+            HashMap<String, Integer> map = new HashMap<>();
+            return new Table() {
+                public boolean put(String key, Integer value) {
+                    return map.put(key, value) == null;
+                }
+
+                public Integer get(String key) {
+                    return map.get(key);
+                }
+
+                public boolean remove(String key) {
+                    return map.remove(key) != null;
+                }
+            };
+        }
+        HashTable<String, Integer> table = new HashTable<>(HashTable.Engine.valueOf(implementation.name()));
+        return new Table() {
+            public boolean put(String key, Integer value) {
+                return table.put(key, value);
+            }
+
+            public Integer get(String key) {
+                return table.get(key);
+            }
+
+            public boolean remove(String key) {
+                return table.remove(key);
+            }
+        };
+    }
+
+    /**
+     * Inserts every key into a new table, growing it from its default capacity.
+     *
+     * @return the filled table
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Table fill() {
+        Table table = newTable();
+        Integer value = 1;
+        for (String key : keys) {
+            table.put(key, value);
+        }
+        return table;
+    }
+
+    /**
+     * Looks up one key present in the table.
+     *
+     * @return the value found
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Integer get() {
+        String key = lookups[cursor];
+        if (++cursor == lookups.length) {
+            cursor = 0;
+        }
+        return filled.get(key);
+    }
+
+    /**
+     * Inserts every key into a new table and removes them again in random order.
+     *
+     * @return the emptied table
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Table fillAndRemove() {
+        Table table = fill();
+        for (String key : lookups) {
+            table.remove(key);
+        }
+        return table;
+    }
+}
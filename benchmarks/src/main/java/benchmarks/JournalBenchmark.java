@@ -0,0 +1,113 @@
+package benchmarks;
+
+import commands.CommandDispatcher;
+import commands.CommandReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import output.OutputWriter;
+import persistence.Journal;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the cost of journaling by dispatching {@code toggle_like} commands with and without
+ * a {@link Journal}, syncing it after every record or in groups. Toggling the same likes back
+ * and forth keeps the model the same size however long the benchmark runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JournalBenchmark {
+    static final int COMMANDS = 4096; // Distinct commands dispatched in turn
+
+    @Param({"none", "1", "64", "1024"})
+    String syncEvery; // Records per sync, or none for the in-memory baseline
+
+    private SyntheticGraph graph; // Graph the commands run on
+    private Path directory; // Directory holding the journal
+    private Journal journal; // Journal under test, or null for the baseline
+    private CommandDispatcher dispatcher; // Dispatcher journaling and executing the commands
+    private final CommandReader command = new CommandReader(); // Reader the commands are loaded into
+    private byte[][] lines; // Encoded toggle_like commands
+    private int cursor; // Index of the next command
+
+    /**
+     * Builds the graph, the commands and the journal.
+     *
+     * @throws IOException if the journal cannot be created
+     */
+    @Setup
+    public void setUp() throws IOException {
+        graph = new SyntheticGraph(1000, 20, 10, 0, 42);
+        Random random = new Random(42);
+        lines = new byte[COMMANDS][];
+        for (int i = 0; i < COMMANDS; i++) {
+            String userID = graph.userIDs[random.nextInt(graph.userIDs.length)];
+            String postID = graph.postIDs[random.nextInt(graph.postIDs.length)];
+            lines[i] = ("toggle_like " + userID + " " + postID).getBytes(StandardCharsets.UTF_8);
+        }
+
+        directory = Files.createTempDirectory("journal-benchmark");
+        if (!syncEvery.equals("none")) {
+            journal = new Journal(directory.resolve("journal").toString(), Integer.parseInt(syncEvery), 0);
+            OutputWriter discarded = new OutputWriter();
+            journal.replay(new CommandDispatcher(graph.users, graph.posts, graph.userIds, graph.postIds,
+                    graph.graph, null, null, discarded), discarded);
+        }
+        dispatcher = new CommandDispatcher(graph.users, graph.posts, graph.userIds, graph.postIds,
+                graph.graph, journal, null, graph.writer);
+    }
+
+    /**
+     * Closes the journal and deletes its files.
+     *
+     * @throws IOException if closing or deleting fails
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+        graph.writer.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Journals and executes the next command.
+     *
+     * @throws IOException if journaling or writing the output fails
+     */
+    @Benchmark
+    public void dispatch() throws IOException {
+        byte[] line = lines[cursor];
+        if (++cursor == COMMANDS) {
+            cursor = 0;
+        }
+        command.load(line, 0, line.length);
+        dispatcher.dispatch(command);
+    }
+}
@@ -0,0 +1,181 @@
+package benchmarks;
+
+import datastructures.LongMaxHeap;
+import datastructures.MaxHeap;
+import datastructures.TopKSelector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link MaxHeap} against a {@link PriorityQueue} in reverse order, inserting random
+ * values into an empty heap and then removing the maximum until it is empty again, and
+ * building a heap from all values at once. Selecting the largest values with a
+ * {@link TopKSelector} is compared against heapifying every value and removing as many, and a
+ * {@link LongMaxHeap} keyed by the primitive values shows the cost of boxing and comparators.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MaxHeapBenchmark {
+    @Param({"100", "10000", "1000000"})
+    int size; // Number of values inserted
+
+    @Param({"10"})
+    int k; // Number of largest values selected
+
+    private Integer[] values; // Random values, boxed ahead of time
+    private List<Integer> valueList; // The same values as a list, for bulk construction
+
+    /**
+     * Generates the values.
+     */
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        values = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = random.nextInt();
+        }
+        valueList = Arrays.asList(values);
+    }
+
+    /**
+     * Inserts every value into a MaxHeap starting from a small capacity.
+     *
+     * @return the filled heap
+     */
+    @Benchmark
+    public MaxHeap<Integer> maxHeapInsert() {
+        MaxHeap<Integer> heap = new MaxHeap<>(16);
+        for (Integer value : values) {
+            heap.insert(value);
+        }
+        return heap;
+    }
+
+    /**
+     * Inserts every value into a PriorityQueue starting from a small capacity.
+     *
+     * @return the filled queue
+     */
+    @Benchmark
+    public PriorityQueue<Integer> priorityQueueInsert() {
+        PriorityQueue<Integer> queue = new PriorityQueue<>(16, Collections.reverseOrder());
+        for (Integer value : values) {
+            queue.add(value);
+        }
+        return queue;
+    }
+
+    /**
+     * Fills a MaxHeap and removes every value in descending order.
+     *
+     * @param blackhole consumes the removed values
+     */
+    @Benchmark
+    public void maxHeapInsertDeleteMax(Blackhole blackhole) {
+        MaxHeap<Integer> heap = maxHeapInsert();
+        while (!heap.isEmpty()) {
+            blackhole.consume(heap.deleteMax());
+        }
+    }
+
+    /**
+     * Fills a LongMaxHeap keyed by the values and removes every entry in descending order.
+     *
+     * @param blackhole consumes the removed values
+     */
+    @Benchmark
+    public void longMaxHeapInsertDeleteMax(Blackhole blackhole) {
+        LongMaxHeap heap = new LongMaxHeap(16, Integer::compare);
+        for (int i = 0; i < values.length; i++) {
+            heap.insert(values[i], i);
+        }
+        while (!heap.isEmpty()) {
+            blackhole.consume(heap.peekValue());
+            heap.deleteMax();
+        }
+    }
+
+    /**
+     * Fills a PriorityQueue and polls every value in descending order.
+     *
+     * @param blackhole consumes the removed values
+     */
+    @Benchmark
+    public void priorityQueueInsertPoll(Blackhole blackhole) {
+        PriorityQueue<Integer> queue = priorityQueueInsert();
+        while (!queue.isEmpty()) {
+            blackhole.consume(queue.poll());
+        }
+    }
+
+    /**
+     * Builds a MaxHeap from every value at once.
+     *
+     * @return the filled heap
+     */
+    @Benchmark
+    public MaxHeap<Integer> maxHeapHeapify() {
+        return new MaxHeap<>(valueList);
+    }
+
+    /**
+     * Builds a PriorityQueue from every value at once.
+     *
+     * @return the filled queue
+     */
+    @Benchmark
+    public PriorityQueue<Integer> priorityQueueHeapify() {
+        PriorityQueue<Integer> queue = new PriorityQueue<>(size, Collections.reverseOrder());
+        queue.addAll(valueList);
+        return queue;
+    }
+
+    /**
+     * Heapifies every value and removes the k largest.
+     *
+     * @param blackhole consumes the removed values
+     */
+    @Benchmark
+    public void maxHeapTopK(Blackhole blackhole) {
+        MaxHeap<Integer> heap = new MaxHeap<>(valueList);
+        for (int i = 0; i < k && !heap.isEmpty(); i++) {
+            blackhole.consume(heap.deleteMax());
+        }
+    }
+
+    /**
+     * Offers every value to a selector keeping the k largest.
+     *
+     * @return the k largest values in descending order
+     */
+    @Benchmark
+    public List<Integer> topKSelector() {
+        TopKSelector<Integer> selector = new TopKSelector<>(k);
+        for (Integer value : values) {
+            selector.offer(value);
+        }
+        return selector.drainDescending();
+    }
+}
@@ -0,0 +1,93 @@
+package benchmarks;
+
+import actions.Actions;
+import models.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code scroll_through_feed} end to end on a synthetic graph. Scrolling marks posts
+ * as seen and toggles likes, so every iteration starts from a freshly built graph and lets each
+ * of the first {@value #SCROLLERS} users scroll once, liking every third post.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class ScrollBenchmark {
+    static final int SCROLLERS = 1000; // Users scrolling once per iteration
+
+    @Param({"10000"})
+    int users; // Number of users in the graph
+
+    @Param({"20", "200"})
+    int followees; // Number of users each user follows
+
+    @Param({"10"})
+    int postsPerUser; // Number of posts each user writes
+
+    @Param({"10", "100"})
+    int feedSize; // Number of posts scrolled per user
+
+    @Param({"-1", "1000"})
+    int pushThreshold; // Largest follower count whose posts are pushed, -1 to pull every feed
+
+    private SyntheticGraph graph; // Graph the commands run on
+    private boolean[] likeFlags; // Scroll flags liking every third post
+
+    /**
+     * Builds a fresh graph before every iteration.
+     *
+     * @throws IOException if the discarding writer cannot be opened
+     */
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        User.setPushThreshold(pushThreshold);
+        graph = new SyntheticGraph(users, followees, postsPerUser, postsPerUser, 42);
+        likeFlags = new boolean[feedSize];
+        for (int i = 0; i < feedSize; i += 3) {
+            likeFlags[i] = true;
+        }
+    }
+
+    /**
+     * Restores the default feed mode and closes the writer.
+     *
+     * @throws IOException if closing the writer fails
+     */
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        User.setPushThreshold(-1);
+        graph.writer.close();
+    }
+
+    /**
+     * Lets each scrolling user scroll through its feed once.
+     *
+     * @throws IOException if writing the output fails
+     */
+    @Benchmark
+    @OperationsPerInvocation(SCROLLERS)
+    public void scrollThroughFeed() throws IOException {
+        for (int i = 0; i < SCROLLERS; i++) {
+            Actions.scrollThroughFeed(graph.users, graph.userIDs[i], feedSize, likeFlags, feedSize, graph.writer);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package benchmarks;
+
+import actions.Actions;
+import datastructures.HashTable;
+import datastructures.IdDictionary;
+import models.FollowGraph;
+import models.Post;
+import models.User;
+import output.OutputWriter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A seeded synthetic social graph built through the same {@link Actions} entry points as the
+ * command log. Popularity follows a Zipf distribution over user ranks, so a few authors gather
+ * most of the followers and likes, as in real networks.
+ */
+final class SyntheticGraph {
+    static final double ZIPF_EXPONENT = 1.0; // Skew of the follower and like distributions
+
+    final HashTable<String, User> users = new HashTable<>(); // Hash table of users
+    final HashTable<String, Post> posts = new HashTable<>(); // Hash table of posts
+    final IdDictionary<User> userIds = new IdDictionary<>(); // Dense ids of users
+    final IdDictionary<Post> postIds = new IdDictionary<>(); // Dense ids of posts
+    final FollowGraph graph = new FollowGraph(userIds); // Follow edges between users
+    final String[] userIDs; // ID of every user in creation order
+    final String[] postIDs; // ID of every post in creation order
+    final OutputWriter writer; // Writer discarding the output of the actions
+
+    /**
+     * Builds a graph. Every user follows a number of distinct users drawn by popularity, writes
+     * a number of posts and likes a number of posts of popular authors.
+     *
+     * @param userCount        the number of users
+     * @param followeesPerUser the number of users each user follows
+     * @param postsPerUser     the number of posts each user writes
+     * @param likesPerUser     the number of like toggles each user performs
+     * @param seed             the seed of the random choices
+     * @throws IOException if the discarding writer cannot be opened
+     */
+    SyntheticGraph(int userCount, int followeesPerUser, int postsPerUser, int likesPerUser, long seed) throws IOException {
+        this.writer = discardingWriter();
+        this.userIDs = new String[userCount];
+        this.postIDs = new String[userCount * postsPerUser];
+        Random random = new Random(seed);
+        Zipf popularity = new Zipf(userCount, ZIPF_EXPONENT);
+
+        for (int i = 0; i < userCount; i++) {
+            userIDs[i] = "u" + i;
+            Actions.createUser(users, userIds, graph, userIDs[i], writer);
+        }
+        for (int i = 0; i < userCount; i++) {
+            int follows = Math.min(followeesPerUser, userCount - 1);
+            for (int j = 0; j < follows; j++) {
+                // Duplicate and self follows are rejected, so draw until the edge is new
+                int target;
+                do {
+                    target = popularity.next(random);
+                } while (target == i || graph.follows(userIds.get(i), userIds.get(target)));
+                Actions.followUser(users, userIDs[i], userIDs[target], writer);
+            }
+        }
+        for (int i = 0; i < postIDs.length; i++) {
+            postIDs[i] = "p" + i;
+            Actions.createPost(users, posts, postIds, userIDs[i % userCount], postIDs[i], "content of post " + i, writer);
+        }
+        for (int i = 0; i < userCount && postsPerUser > 0; i++) {
+            for (int j = 0; j < likesPerUser; j++) {
+                int author = popularity.next(random);
+                String postID = postIDs[author + userCount * random.nextInt(postsPerUser)];
+                Actions.toggleLike(users, posts, userIDs[i], postID, writer);
+            }
+        }
+    }
+
+    /**
+     * Opens a writer that throws its output away without allocating per write.
+     *
+     * @return a writer to the null device
+     * @throws IOException if the null device cannot be opened
+     */
+    static OutputWriter discardingWriter() throws IOException {
+        boolean windows = System.getProperty("os.name").startsWith("Windows");
+        return new OutputWriter(windows ? "NUL" : "/dev/null", false);
+    }
+
+    /**
+     * Draws ranks from a Zipf distribution by binary search over the cumulative probabilities.
+     */
+    static final class Zipf {
+        private final double[] cumulative; // Cumulative probability of each rank
+
+        /**
+         * Precomputes the distribution.
+         *
+         * @param count    the number of ranks
+         * @param exponent the skew, 0 for uniform
+         */
+        Zipf(int count, double exponent) {
+            cumulative = new double[count];
+            double sum = 0;
+            for (int i = 0; i < count; i++) {
+                sum += 1 / Math.pow(i + 1, exponent);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < count; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        /**
+         * Draws a rank, 0 being the most likely.
+         *
+         * @param random the source of randomness
+         * @return the rank
+         */
+        int next(Random random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package commands;
+
+import actions.Actions;
+import datastructures.HashTable;
+import datastructures.IdDictionary;
+import models.FollowGraph;
+import models.LikeCoalescer;
+import models.Post;
+import models.User;
+import output.OutputWriter;
+import persistence.Journal;
+import stats.Statistics;
+
+import java.io.IOException;
+
+/**
+ * Executes parsed commands by looking up a handler for each opcode in a table and
+ * calling the matching method of {@link Actions}. Commands that change the model are
+ * appended to the journal, if there is one, before they are executed, and every command is
+ * timed into the statistics, if there are any. When likes are coalesced, the pending like
+ * count changes are applied before every command that reads like counts or rankings.
+ */
+public class CommandDispatcher {
+    /**
+     * Executes one command read by a {@link CommandReader}.
+     */
+    interface Handler {
+        void handle(CommandReader command) throws IOException;
+    }
+
+    private final Handler[] handlers = new Handler[Opcode.values().length]; // Handlers indexed by opcode
+    private final HashTable<String, User> users; // Hash table of users
+    private final Journal journal; // Journal of the commands that change the model, or null
+    private final Statistics statistics; // Latencies of the executed commands, or null
+    private final OutputWriter writer; // Writer used for logging output
+    private final LikeCoalescer likes; // Coalescer of like count changes, or null if likes are applied at once
+    private boolean[] likeFlags = new boolean[16]; // Reusable scroll flags, true for a like
+
+    /**
+     * Constructs a dispatcher operating on the given users and posts.
+     *
+     * @param users   the hash table of users
+     * @param posts   the hash table of posts
+     * @param userIds the dictionary assigning dense ids to users
+     * @param postIds the dictionary assigning dense ids to posts
+     * @param graph   the graph recording follows between users
+     * @param journal    the journal commands that change the model are appended to, or {@code null} for none
+     * @param statistics the statistics commands are timed into, or {@code null} for none
+     * @param writer     the writer used for logging output
+     */
+    public CommandDispatcher(HashTable<String, User> users, HashTable<String, Post> posts,
+                             IdDictionary<User> userIds, IdDictionary<Post> postIds, FollowGraph graph,
+                             Journal journal, Statistics statistics, OutputWriter writer) {
+        this.users = users;
+        this.journal = journal;
+        this.statistics = statistics;
+        this.writer = writer;
+        this.likes = User.getLikeCoalescer();
+        handlers[Opcode.CREATE_USER.ordinal()] = command ->
+                Actions.createUser(users, userIds, graph, command.token(1), writer);
+        handlers[Opcode.FOLLOW_USER.ordinal()] = command ->
+                Actions.followUser(users, command.token(1), command.token(2), writer);
+        handlers[Opcode.UNFOLLOW_USER.ordinal()] = command ->
+                Actions.unfollowUser(users, command.token(1), command.token(2), writer);
+        handlers[Opcode.CREATE_POST.ordinal()] = command ->
+                Actions.createPost(users, posts, postIds, command.token(1), command.token(2), command.remainder(3), writer);
+        handlers[Opcode.SEE_POST.ordinal()] = command ->
+                Actions.seePost(users, posts, command.token(1), command.token(2), writer);
+        handlers[Opcode.SEE_ALL_POSTS_FROM_USER.ordinal()] = command ->
+                Actions.seeAllPosts(users, command.token(1), command.token(2), writer);
+        handlers[Opcode.TOGGLE_LIKE.ordinal()] = command ->
+                Actions.toggleLike(users, posts, command.token(1), command.token(2), writer);
+        handlers[Opcode.GENERATE_FEED.ordinal()] = command ->
+                Actions.generateFeed(users, command.token(1), command.intToken(2), writer);
+        handlers[Opcode.NEXT_PAGE.ordinal()] = command ->
+                Actions.nextPage(users, command.token(1), command.intToken(2), writer);
+        handlers[Opcode.SCROLL_THROUGH_FEED.ordinal()] = this::scrollThroughFeed;
+        handlers[Opcode.SORT_POSTS.ordinal()] = command ->
+                Actions.sortPosts(users, command.token(1), writer);
+        handlers[Opcode.LIST_FOLLOWERS.ordinal()] = command ->
+                Actions.listFollowers(users, graph, command.token(1), writer);
+        handlers[Opcode.LIST_FOLLOWEES.ordinal()] = command ->
+                Actions.listFollowees(users, graph, command.token(1), writer);
+        handlers[Opcode.SAVE_SNAPSHOT.ordinal()] = command ->
+                Actions.saveSnapshot(users, userIds, postIds, command.token(1), writer);
+        handlers[Opcode.LOAD_SNAPSHOT.ordinal()] = command ->
+                Actions.loadSnapshot(users, posts, userIds, postIds, graph, command.token(1), writer);
+        handlers[Opcode.CHECKPOINT.ordinal()] = command ->
+                Actions.checkpoint(users, userIds, postIds, journal, writer);
+        handlers[Opcode.STATS.ordinal()] = command ->
+                Actions.stats(statistics, writer);
+    }
+
+    /**
+     * Executes the command on the current line of a reader. Blank lines, unknown commands and
+     * commands missing required arguments are ignored.
+     *
+     * @param command the reader positioned on a command
+     * @throws IOException if an I/O error occurs
+     */
+    public void dispatch(CommandReader command) throws IOException {
+        Opcode opcode = command.opcode();
+        if (opcode != null && command.tokenCount() >= opcode.getMinTokens()) {
+            if (journal != null && opcode.isJournaled()) {
+                journal.append(command);
+            }
+            if (statistics == null) {
+                if (likes != null && opcode.readsLikes()) {
+                    likes.flush();
+                }
+                handlers[opcode.ordinal()].handle(command);
+                return;
+            }
+            long start = System.nanoTime();
+            if (likes != null && opcode.readsLikes()) {
+                likes.flush(); // Timed as part of the command that needs the likes applied
+            }
+            handlers[opcode.ordinal()].handle(command);
+            statistics.record(opcode, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Decodes the scroll flags into the reusable flag array and scrolls through the feed.
+     *
+     * @param command the reader positioned on a scroll_through_feed command
+     * @throws IOException if an I/O error occurs
+     */
+    private void scrollThroughFeed(CommandReader command) throws IOException {
+        int flagCount = command.tokenCount() - 3;
+        if (flagCount > likeFlags.length) {
+            likeFlags = new boolean[Math.max(flagCount, 2 * likeFlags.length)];
+        }
+        for (int i = 0; i < flagCount; i++) {
+            likeFlags[i] = !command.isZero(3 + i); // Anything other than 0 clicks the like button
+        }
+        Actions.scrollThroughFeed(users, command.token(1), command.intToken(2), likeFlags, flagCount, writer);
+    }
+}
@@ -0,0 +1,308 @@
+package commands;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads commands from an input file one line at a time. The file is read through a
+ * {@link FileChannel} into a large reusable buffer and each line is split into tokens in place,
+ * so recognizing the command and parsing numbers and scroll flags creates no objects.
+ * Tokens are separated by single spaces and trailing empty tokens are dropped, exactly as
+ * {@code line.split(" ")} does. Lines end with {@code \n}, {@code \r\n} or {@code \r}.
+ */
+public class CommandReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20; // Bytes read from the channel at a time
+
+    private final FileChannel channel; // Channel the input is read from, or null for lines loaded from memory
+    private byte[] buffer; // Bytes read but not yet consumed
+    private int position; // Index of the first unconsumed byte
+    private int limit; // Index after the last valid byte
+    private boolean endOfInput; // Whether the channel is exhausted
+    private int[] tokenStarts = new int[16]; // Start index of each token of the current line
+    private int[] tokenEnds = new int[16]; // End index of each token of the current line
+    private int tokenCount; // Number of tokens on the current line
+    private int lineStart; // Index of the first byte of the current line
+    private int lineEnd; // Index after the last byte of the current line
+    private boolean skipLineFeed; // Whether the previous line ended with \r, so a following \n belongs to it
+
+    /**
+     * Opens a reader over the given file.
+     *
+     * @param path the path to the input file
+     * @throws IOException if the file cannot be opened
+     */
+    public CommandReader(String path) throws IOException {
+        this.channel = FileChannel.open(Path.of(path), StandardOpenOption.READ);
+        this.buffer = new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Constructs a reader without an input file, whose lines are loaded from memory with
+     * {@link #load(byte[], int, int)}, for example to re-execute journaled commands.
+     */
+    public CommandReader() {
+        this.channel = null;
+        this.buffer = new byte[256];
+        this.endOfInput = true;
+    }
+
+    /**
+     * Advances to the next line and splits it into tokens.
+     *
+     * @return {@code true} if a line was read, {@code false} at the end of the input
+     * @throws IOException if an I/O error occurs
+     */
+    public boolean nextLine() throws IOException {
+        if (skipLineFeed) {
+            // Complete a \r\n terminator that was split across reads
+            if (position == limit && !endOfInput) {
+                fill();
+            }
+            if (position < limit && buffer[position] == '\n') {
+                position++;
+            }
+            skipLineFeed = false;
+        }
+
+        int end = findLineEnd(position);
+        while (end < 0) {
+            if (endOfInput) {
+                if (position == limit) {
+                    return false; // No more lines
+                }
+                end = limit; // The last line has no terminator
+                break;
+            }
+            int scanned = limit - position;
+            fill();
+            end = findLineEnd(position + scanned);
+        }
+        tokenize(position, end);
+
+        // Consume the line terminator; the tokens stay valid until the next call
+        position = end;
+        if (position < limit) {
+            skipLineFeed = buffer[position] == '\r';
+            position++;
+        }
+        return true;
+    }
+
+    /**
+     * Replaces the current line of a reader without an input file and splits it into tokens.
+     *
+     * @param line   the bytes holding the line, without a terminator
+     * @param start  the index of the first byte of the line
+     * @param length the number of bytes in the line
+     */
+    public void load(byte[] line, int start, int length) {
+        if (length > buffer.length) {
+            buffer = new byte[Math.max(length, 2 * buffer.length)];
+        }
+        System.arraycopy(line, start, buffer, 0, length);
+        position = 0;
+        limit = 0;
+        tokenize(0, length);
+    }
+
+    /**
+     * Retrieves the length of the current line, without its terminator.
+     *
+     * @return the number of bytes on the line
+     */
+    public int lineLength() {
+        return lineEnd - lineStart;
+    }
+
+    /**
+     * Copies the raw bytes of the current line, without its terminator, into a buffer.
+     *
+     * @param target the buffer receiving the bytes at its position
+     */
+    public void copyLine(ByteBuffer target) {
+        target.put(buffer, lineStart, lineEnd - lineStart);
+    }
+
+    /**
+     * Finds the end of the line starting at the current position.
+     *
+     * @param from the index to resume the search from
+     * @return the index of the line terminator, or -1 if the buffer holds no terminator
+     */
+    private int findLineEnd(int from) {
+        for (int i = from; i < limit; i++) {
+            byte b = buffer[i];
+            if (b == '\n' || b == '\r') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Moves the unconsumed bytes to the front of the buffer, growing it if a single line
+     * fills it, and reads more bytes from the channel.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private void fill() throws IOException {
+        int remaining = limit - position;
+        if (remaining == buffer.length) {
+            byte[] newBuffer = new byte[2 * buffer.length];
+            System.arraycopy(buffer, position, newBuffer, 0, remaining);
+            buffer = newBuffer;
+        } else {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+        }
+        position = 0;
+        limit = remaining;
+        int read = channel.read(ByteBuffer.wrap(buffer, limit, buffer.length - limit));
+        if (read < 0) {
+            endOfInput = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    /**
+     * Splits a line into tokens at every single space.
+     *
+     * @param start the index of the first byte of the line
+     * @param end   the index after the last byte of the line
+     */
+    private void tokenize(int start, int end) {
+        lineStart = start;
+        lineEnd = end;
+        tokenCount = 0;
+        int tokenStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || buffer[i] == ' ') {
+                if (tokenCount == tokenStarts.length) {
+                    int[] newStarts = new int[2 * tokenCount];
+                    int[] newEnds = new int[2 * tokenCount];
+                    System.arraycopy(tokenStarts, 0, newStarts, 0, tokenCount);
+                    System.arraycopy(tokenEnds, 0, newEnds, 0, tokenCount);
+                    tokenStarts = newStarts;
+                    tokenEnds = newEnds;
+                }
+                tokenStarts[tokenCount] = tokenStart;
+                tokenEnds[tokenCount] = i;
+                tokenCount++;
+                tokenStart = i + 1;
+            }
+        }
+        // Drop trailing empty tokens, but keep a single empty token for an empty line
+        while (tokenCount > 1 && tokenStarts[tokenCount - 1] == tokenEnds[tokenCount - 1]) {
+            tokenCount--;
+        }
+    }
+
+    /**
+     * Retrieves the number of tokens on the current line.
+     *
+     * @return the token count
+     */
+    public int tokenCount() {
+        return tokenCount;
+    }
+
+    /**
+     * Recognizes the command of the current line.
+     *
+     * @return the opcode, or {@code null} if the line does not start with a known command
+     */
+    public Opcode opcode() {
+        int length = tokenEnds[0] - tokenStarts[0];
+        return length == 0 ? null : Opcode.match(buffer, tokenStarts[0], length);
+    }
+
+    /**
+     * Decodes a token of the current line, such as a user or post ID.
+     *
+     * @param index the index of the token
+     * @return the token as a String
+     */
+    public String token(int index) {
+        return new String(buffer, tokenStarts[index], tokenEnds[index] - tokenStarts[index], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses a token of the current line as a decimal integer with an optional sign.
+     *
+     * @param index the index of the token
+     * @return the parsed value
+     * @throws NumberFormatException if the token is not a valid integer
+     */
+    public int intToken(int index) {
+        int i = tokenStarts[index];
+        int end = tokenEnds[index];
+        boolean negative = false;
+        if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+            negative = buffer[i] == '-';
+            i++;
+        }
+        if (i == end) {
+            throw new NumberFormatException("For input string: \"" + token(index) + "\"");
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9 || value > Integer.MAX_VALUE + 1L) {
+                throw new NumberFormatException("For input string: \"" + token(index) + "\"");
+            }
+            value = 10 * value + digit;
+        }
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("For input string: \"" + token(index) + "\"");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Checks whether a token of the current line is exactly {@code 0}.
+     *
+     * @param index the index of the token
+     * @return {@code true} if the token is {@code 0}, {@code false} otherwise
+     */
+    public boolean isZero(int index) {
+        return tokenEnds[index] - tokenStarts[index] == 1 && buffer[tokenStarts[index]] == '0';
+    }
+
+    /**
+     * Decodes the remainder of the current line starting at a token, such as the content of a post.
+     * Content wrapped in double quotes is returned without the quotes and may contain spaces.
+     *
+     * @param index the index of the first token of the remainder
+     * @return the remainder of the line, or an empty String if the line has fewer tokens
+     */
+    public String remainder(int index) {
+        if (index >= tokenCount) {
+            return "";
+        }
+        int start = tokenStarts[index];
+        int end = tokenEnds[tokenCount - 1]; // Trailing spaces are not part of the content
+        if (end - start >= 2 && buffer[start] == '"' && buffer[end - 1] == '"') {
+            start++;
+            end--;
+        }
+        return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Closes the underlying channel, if any.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package commands;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The commands understood in an input file. Each opcode knows its name as raw bytes so that
+ * a command can be recognized straight from the input buffer without creating a String.
+ */
+public enum Opcode {
+    CREATE_USER("create_user", 2, true, false),
+    FOLLOW_USER("follow_user", 3, true, false),
+    UNFOLLOW_USER("unfollow_user", 3, true, false),
+    CREATE_POST("create_post", 3, true, false),
+    SEE_POST("see_post", 3, true, false),
+    SEE_ALL_POSTS_FROM_USER("see_all_posts_from_user", 3, true, false),
+    TOGGLE_LIKE("toggle_like", 3, true, false),
+    GENERATE_FEED("generate_feed", 3, false, true),
+    NEXT_PAGE("next_page", 3, false, true),
+    SCROLL_THROUGH_FEED("scroll_through_feed", 3, true, true),
+    SORT_POSTS("sort_posts", 2, false, true),
+    LIST_FOLLOWERS("list_followers", 2, false, false),
+    LIST_FOLLOWEES("list_followees", 2, false, false),
+    SAVE_SNAPSHOT("save_snapshot", 2, false, true),
+    LOAD_SNAPSHOT("load_snapshot", 2, true, true),
+    CHECKPOINT("checkpoint", 1, false, true),
+    STATS("stats", 1, false, false);
+
+    private static final Opcode[] OPCODES = values(); // Cached to avoid cloning on every lookup
+
+    private final String command; // Name of the command in the input file
+    private final byte[] name; // Name of the command as ASCII bytes
+    private final int minTokens; // Number of tokens, including the name, the command requires
+    private final boolean journaled; // Whether the command changes the model and must be journaled
+    private final boolean readsLikes; // Whether the command reads like counts or rankings by likes
+
+    Opcode(String command, int minTokens, boolean journaled, boolean readsLikes) {
+        this.command = command;
+        this.name = command.getBytes(StandardCharsets.US_ASCII);
+        this.minTokens = minTokens;
+        this.journaled = journaled;
+        this.readsLikes = readsLikes;
+    }
+
+    /**
+     * Recognizes a command name in a byte range.
+     *
+     * @param buffer the bytes holding the name
+     * @param start  the index of the first byte of the name
+     * @param length the number of bytes in the name
+     * @return the matching opcode, or {@code null} if the name is not a known command
+     */
+    public static Opcode match(byte[] buffer, int start, int length) {
+        for (Opcode opcode : OPCODES) {
+            byte[] name = opcode.name;
+            if (name.length == length && name[0] == buffer[start]
+                    && Arrays.equals(name, 0, length, buffer, start, start + length)) {
+                return opcode;
+            }
+        }
+        return null; // Unknown command
+    }
+
+    /**
+     * Retrieves the name of the command as written in an input file.
+     *
+     * @return the command name
+     */
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * Retrieves the number of tokens, including the command name, the command requires.
+     *
+     * @return the minimum token count
+     */
+    public int getMinTokens() {
+        return minTokens;
+    }
+
+    /**
+     * Checks whether the command changes the model, so that it must be written to the journal
+     * to survive a crash.
+     *
+     * @return {@code true} if the command is journaled
+     */
+    public boolean isJournaled() {
+        return journaled;
+    }
+
+    /**
+     * Checks whether the command reads like counts or rankings by likes, so that like count
+     * changes batched by a {@link models.LikeCoalescer} must be applied before it runs.
+     *
+     * @return {@code true} if the command depends on up-to-date like counts
+     */
+    public boolean readsLikes() {
+        return readsLikes;
+    }
+}
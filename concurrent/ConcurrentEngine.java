@@ -0,0 +1,373 @@
+package concurrent;
+
+import actions.Actions;
+import datastructures.HashTable;
+import datastructures.IdDictionary;
+import models.FollowGraph;
+import models.Post;
+import models.User;
+import output.OutputWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Executes commands from many threads at once. Users and posts live in lock-striped tables,
+ * and every command locks the stripes of the users whose state it reads or changes before
+ * running the same {@link Actions} method the sequential program uses:
+ * <ul>
+ *     <li>follow and unfollow lock both users,</li>
+ *     <li>creating a post, seeing a post and sorting posts lock the acting user,</li>
+ *     <li>listing followers or followed users locks the listed user,</li>
+ *     <li>seeing all posts locks the viewer and the viewed user,</li>
+ *     <li>toggling a like locks the liker and the post's author, whose ranked posts change,</li>
+ *     <li>feeds lock the user and every followed user whose posts are merged or liked.</li>
+ * </ul>
+ * Users and posts are looked up before locking, so each command checks again under the locks
+ * that the lookups still hold and retries if a concurrent command created one of them meanwhile.
+ * Like counts are updated atomically, so they stay equal to the number of likers.
+ * <p>
+ * Feeds are always pulled and never cached, and like counts change at once. In push mode,
+ * creating a post or changing its likes would change the inbox of every follower while only the
+ * author and the liker are locked, and the feed cache and the pending deltas of batched likes
+ * are shared by all users without a lock, so the engine cannot be constructed with any of them
+ * enabled, and none can be enabled once it exists.
+ */
+public class ConcurrentEngine {
+    /**
+     * An action run while the required stripes are locked.
+     */
+    private interface LockedAction {
+        void run() throws IOException;
+    }
+
+    private final HashTable<String, User> users = new HashTable<>(HashTable.Engine.STRIPED); // Users by ID
+    private final HashTable<String, Post> posts = new HashTable<>(HashTable.Engine.STRIPED); // Posts by ID
+    private final IdDictionary<User> userIds = new IdDictionary<>(); // Dense ids of users, guarded by its monitor
+    private final IdDictionary<Post> postIds = new IdDictionary<>(); // Dense ids of posts, guarded by its monitor
+    private final FollowGraph graph = new FollowGraph(userIds); // Follows, each user's edges guarded by its stripe
+    private final LockStripes stripes; // Locks guarding the users
+
+    /**
+     * Constructs an empty engine.
+     *
+     * @param stripeCount the number of lock stripes shared by all users
+     * @throws IllegalStateException if push mode is enabled, feeds are cached or likes are batched
+     */
+    public ConcurrentEngine(int stripeCount) {
+        User.shareBetweenThreads();
+        this.stripes = new LockStripes(stripeCount);
+    }
+
+    /**
+     * Creates a new user. User creation is serialized on the user dictionary.
+     *
+     * @param userID the unique identifier for the new user
+     * @param writer the writer used for logging output
+     * @throws IOException if an I/O error occurs
+     */
+    public void createUser(String userID, OutputWriter writer) throws IOException {
+        synchronized (userIds) {
+            Actions.createUser(users, userIds, graph, userID, writer);
+        }
+    }
+
+    /**
+     * Makes one user follow another user while holding both users' stripes.
+     *
+     * @param userID1 the ID of the user who will follow
+     * @param userID2 the ID of the user to be followed
+     * @param writer  the writer used for logging output
+     * @throws IOException if an I/O error occurs
+     */
+    public void followUser(String userID1, String userID2, OutputWriter writer) throws IOException {
+        runLocked(() -> Actions.followUser(users, userID1, userID2, writer), userID1, userID2);
+    }
+
+    /**
+     * Makes one user unfollow another user while holding both users' stripes.
+     *
+     * @param userID1 the ID of the user who will unfollow
+     * @param userID2 the ID of the user to be unfollowed
+     * @param writer  the writer used for logging output
+     * @throws IOException if an I/O error occurs
+     */
+    public void unfollowUser(String userID1, String userID2, OutputWriter writer) throws IOException {
+        runLocked(() -> Actions.unfollowUser(users, userID1, userID2, writer), userID1, userID2);
+    }
+
+    /**
+     * Creates a new post while holding the author's stripe. Post creation is serialized on the post dictionary.
+     *
+     * @param userID      the ID of the user creating the post
+     * @param postID      the unique identifier for the post
+     * @param postContent the content of the post
+     * @param writer      the writer used for logging output
+     * @throws IOException if an I/O error occurs
+     */
+    public void createPost(String userID, String postID, String postContent, OutputWriter writer) throws IOException {
+        runLocked(() -> {
+            synchronized (postIds) {
+                Actions.createPost(users, posts, postIds, userID, postID, postContent, writer);
+            }
+        }, userID);
+    }
+
+    /**
+     * Marks a post as seen while holding the viewer's stripe.
+     *
+     * @param userID the ID of the user viewing the post
+     * @param postID the ID of the post being viewed
+     * @param writer the writer used for logging output
+     * @throws IOException if an I/O error occurs
+     */
+    public void seePost(String userID, String postID, OutputWriter writer) throws IOException {
+        runLocked(() -> Actions.seePost(users, posts, userID, postID, writer), userID);
+    }
+
+    /**
+     * Marks all posts of one user as seen while holding the stripes of both users.
+     *
+     * @param viewerID the ID of the user viewing the posts
+     * @param viewedID the ID of the user whose posts are being viewed
+     * @param writer   the writer used for logging output
+     * @throws IOException if an I/O error occurs
+     */
+    public void seeAllPosts(String viewerID, String viewedID, OutputWriter writer) throws IOException {
+        runLocked(() -> Actions.seeAllPosts(users, viewerID, viewedID, writer), viewerID, viewedID);
+    }
+
+    /**
+     * Toggles a like while holding the stripes of the liker and of the post's author.
+     *
+     * @param userID the ID of the user liking or unliking the post
+     * @param postID the ID of the post being liked or unliked
+     * @param writer the writer used for logging output
+     * @throws IOException if an I/O error occurs
+     */
+    public void toggleLike(String userID, String postID, OutputWriter writer) throws IOException {
+        while (true) {
+            User liker = users.get(userID);
+            Post post = posts.get(postID);
+            User author = post == null ? null : users.get(post.getAuthor());
+            if (tryLocked(() -> Actions.toggleLike(users, posts, userID, postID, writer), new User[]{liker, author},
+                    () -> users.get(userID) == liker && posts.get(postID) == post)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Generates a feed while holding the stripes of the user and of every followed user.
+     *
+     * @param userID   the ID of the user for whom the feed is generated
+     * @param feedSize the maximum number of posts to include in the feed
+     * @param writer   the writer used for logging output
+     * @throws IOException if an I/O error occurs
+     */
+    public void generateFeed(String userID, int feedSize, OutputWriter writer) throws IOException {
+        runLockedWithFollowees(() -> Actions.generateFeed(users, userID, feedSize, writer), userID);
+    }
+
+    /**
+     * Scrolls through a feed while holding the stripes of the user and of every followed user.
+     *
+     * @param userID    the ID of the user scrolling through the feed
+     * @param feedSize  the number of posts the user intends to scroll through
+     * @param likeFlags for each scrolled post, whether the user clicks the like button
+     * @param flagCount the number of valid entries in {@code likeFlags}
+     * @param writer    the writer used for logging output
+     * @throws IOException if an I/O error occurs
+     */
+    public void scrollThroughFeed(String userID, int feedSize, boolean[] likeFlags, int flagCount, OutputWriter writer) throws IOException {
+        runLockedWithFollowees(() -> Actions.scrollThroughFeed(users, userID, feedSize, likeFlags, flagCount, writer), userID);
+    }
+
+    /**
+     * Sorts a user's posts while holding the user's stripe.
+     *
+     * @param userID the ID of the user whose posts are being sorted
+     * @param writer the writer used for logging output
+     * @throws IOException if an I/O error occurs
+     */
+    public void sortPosts(String userID, OutputWriter writer) throws IOException {
+        runLocked(() -> Actions.sortPosts(users, userID, writer), userID);
+    }
+
+    /**
+     * Lists a user's followers while holding the user's stripe, which every follow of the user holds.
+     *
+     * @param userID the ID of the user whose followers are listed
+     * @param writer the writer used for logging output
+     * @throws IOException if an I/O error occurs
+     */
+    public void listFollowers(String userID, OutputWriter writer) throws IOException {
+        runLocked(() -> Actions.listFollowers(users, graph, userID, writer), userID);
+    }
+
+    /**
+     * Lists the users a user follows while holding the user's stripe.
+     *
+     * @param userID the ID of the user whose followed users are listed
+     * @param writer the writer used for logging output
+     * @throws IOException if an I/O error occurs
+     */
+    public void listFollowees(String userID, OutputWriter writer) throws IOException {
+        runLocked(() -> Actions.listFollowees(users, graph, userID, writer), userID);
+    }
+
+    /**
+     * Runs an action while holding the stripes of the given users. Missing users are skipped;
+     * the action reports them as errors.
+     *
+     * @param action  the action to run
+     * @param userIDs the IDs of the users whose state the action reads or changes
+     * @throws IOException if an I/O error occurs
+     */
+    private void runLocked(LockedAction action, String... userIDs) throws IOException {
+        User[] involved = new User[userIDs.length];
+        while (true) {
+            for (int i = 0; i < userIDs.length; i++) {
+                involved[i] = users.get(userIDs[i]);
+            }
+            if (tryLocked(action, involved, () -> resolvesTo(userIDs, involved))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Checks that user IDs still resolve to the users found before locking.
+     *
+     * @param userIDs  the user IDs
+     * @param involved the users found for them, {@code null} for missing ones
+     * @return {@code true} if every ID resolves to the same user as before
+     */
+    private boolean resolvesTo(String[] userIDs, User[] involved) {
+        for (int i = 0; i < userIDs.length; i++) {
+            if (users.get(userIDs[i]) != involved[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Locks the stripes of the given users and runs an action if the lookups that produced them still hold.
+     *
+     * @param action    the action to run
+     * @param involved  the users to lock, {@code null} entries are skipped
+     * @param unchanged checks under the locks whether the lookups still hold
+     * @return {@code true} if the action ran, {@code false} if the lookups changed and must be repeated
+     * @throws IOException if an I/O error occurs
+     */
+    private boolean tryLocked(LockedAction action, User[] involved, BooleanSupplier unchanged) throws IOException {
+        int[] locked = new int[involved.length];
+        int count = 0;
+        for (User user : involved) {
+            if (user != null) {
+                locked[count++] = stripes.stripeOf(user.getIndex());
+            }
+        }
+        count = stripes.lockAll(locked, count);
+        try {
+            if (!unchanged.getAsBoolean()) {
+                return false;
+            }
+            action.run();
+            return true;
+        } finally {
+            stripes.unlockAll(locked, count);
+        }
+    }
+
+    /**
+     * Runs an action while holding the stripes of a user and of every user it follows. The
+     * followed users are read under the user's own stripe first; if they change before all
+     * stripes are acquired, the locks are released and the attempt is repeated.
+     *
+     * @param action the action to run
+     * @param userID the ID of the user whose feed is built
+     * @throws IOException if an I/O error occurs
+     */
+    private void runLockedWithFollowees(LockedAction action, String userID) throws IOException {
+        while (true) {
+            User user = users.get(userID);
+            if (user == null) {
+                // Report the missing user unless it was created meanwhile
+                if (tryLocked(action, new User[0], () -> users.get(userID) == null)) {
+                    return;
+                }
+                continue;
+            }
+
+            int ownStripe = stripes.stripeOf(user.getIndex());
+            int[] own = {ownStripe};
+            int[] needed;
+            stripes.lockAll(own, 1);
+            try {
+                int followeeCount = user.getFolloweeCount();
+                needed = new int[followeeCount + 1];
+                needed[0] = ownStripe;
+                for (int i = 0; i < followeeCount; i++) {
+                    needed[i + 1] = stripes.stripeOf(user.getFolloweeIndex(i));
+                }
+            } finally {
+                stripes.unlockAll(own, 1);
+            }
+
+            int count = stripes.lockAll(needed, needed.length);
+            try {
+                if (holdsFolloweeStripes(user)) {
+                    action.run();
+                    return;
+                }
+            } finally {
+                stripes.unlockAll(needed, count);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the current thread holds the stripe of every user the given user follows.
+     *
+     * @param user the user whose followees are checked; its own stripe must be held
+     * @return {@code true} if all stripes are held, {@code false} if the followees changed
+     */
+    private boolean holdsFolloweeStripes(User user) {
+        for (int i = 0; i < user.getFolloweeCount(); i++) {
+            if (!stripes.isHeldByCurrentThread(stripes.stripeOf(user.getFolloweeIndex(i)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Verifies the invariants of the model: every post's like count equals the number of users
+     * who like it, and every follow is recorded in both directions. It must only be called
+     * while no other thread is executing commands, as {@code workload.StressHarness} does
+     * between its rounds.
+     *
+     * @return a description of every violation found; empty if the model is consistent
+     */
+    public ArrayList<String> checkInvariants() {
+        ArrayList<String> violations = new ArrayList<>();
+        int[] likers = new int[postIds.size()];
+        for (int i = 0; i < userIds.size(); i++) {
+            User user = userIds.get(i);
+            user.forEachLikedPost(postIndex -> likers[postIndex]++);
+            if (!user.hasConsistentFollows()) {
+                violations.add("Inconsistent follows for " + user.getUserId());
+            }
+        }
+        for (int i = 0; i < postIds.size(); i++) {
+            Post post = postIds.get(i);
+            if (post.getLikes() != likers[i]) {
+                violations.add("Post " + post.getPostID() + " has " + post.getLikes() + " likes but " + likers[i] + " likers");
+            }
+        }
+        return violations;
+    }
+}
@@ -0,0 +1,82 @@
+package concurrent;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed pool of locks shared by all users. A user is guarded by the stripe its dense index
+ * maps to, so millions of users need only a few thousand lock objects. Sets of stripes are
+ * always acquired in ascending order, which rules out deadlocks between commands that lock
+ * several users at once.
+ */
+public class LockStripes {
+    private final ReentrantLock[] locks; // The stripes
+    private final int mask; // Stripe count minus one
+
+    /**
+     * Constructs a pool of stripes.
+     *
+     * @param count the number of stripes, rounded up to a power of two
+     */
+    public LockStripes(int count) {
+        int size = Integer.highestOneBit(Math.max(1, count - 1)) << 1;
+        this.locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Retrieves the stripe guarding the element with the given dense index.
+     *
+     * @param index the dense index
+     * @return the stripe number
+     */
+    public int stripeOf(int index) {
+        return index & mask;
+    }
+
+    /**
+     * Sorts and de-duplicates stripe numbers in place and locks them in ascending order.
+     *
+     * @param stripes the stripe numbers; the first {@code count} entries are rearranged
+     * @param count   the number of valid entries
+     * @return the number of distinct stripes now locked, which are the first entries of the array
+     */
+    public int lockAll(int[] stripes, int count) {
+        Arrays.sort(stripes, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || stripes[distinct - 1] != stripes[i]) {
+                stripes[distinct++] = stripes[i];
+            }
+        }
+        for (int i = 0; i < distinct; i++) {
+            locks[stripes[i]].lock();
+        }
+        return distinct;
+    }
+
+    /**
+     * Unlocks stripes previously locked by {@link #lockAll}.
+     *
+     * @param stripes the distinct stripe numbers
+     * @param count   the number of stripes
+     */
+    public void unlockAll(int[] stripes, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            locks[stripes[i]].unlock();
+        }
+    }
+
+    /**
+     * Checks whether the current thread holds a stripe.
+     *
+     * @param stripe the stripe number
+     * @return {@code true} if the stripe is locked by the current thread
+     */
+    public boolean isHeldByCurrentThread(int stripe) {
+        return locks[stripe].isHeldByCurrentThread();
+    }
+}
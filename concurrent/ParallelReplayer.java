@@ -0,0 +1,374 @@
+package concurrent;
+
+import commands.CommandReader;
+import commands.Opcode;
+import datastructures.HashTable;
+import datastructures.IdDictionary;
+import models.FollowGraph;
+import models.Post;
+import models.User;
+import output.OutputWriter;
+import persistence.Snapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Replays a command log on all cores while producing exactly the output of sequential replay.
+ * <p>
+ * The log is read in windows. Each command of a window is analysed in log order to find the
+ * users and posts whose state it reads or changes, and waits for the earlier commands of the
+ * window that change what it reads or read what it changes. To know the users a feed or a like
+ * involves before anything runs, the analysis simulates which users and posts exist, who wrote
+ * each post and who follows whom. Commands whose dependencies have finished run as tasks on a
+ * {@link ForkJoinPool}, each writing into its own buffer, and once the window is complete the
+ * buffers are written in log order. Feeds must be pull-based, since pushing a post or a like
+ * would change the inboxes of every follower, and neither feeds are cached nor likes batched,
+ * since the cache and the pending like deltas are shared by all users without a lock. The
+ * replayer cannot be constructed with any of them enabled.
+ * <p>
+ * Commands read and change the following state:
+ * <ul>
+ *     <li>create_user changes the created user,</li>
+ *     <li>follow_user and unfollow_user change the follower and the followed user's followers,</li>
+ *     <li>create_post changes the author and the post,</li>
+ *     <li>see_post changes the viewer and reads the post,</li>
+ *     <li>see_all_posts_from_user changes the viewer and reads the viewed user,</li>
+ *     <li>toggle_like changes the liker and the post's author and reads the post,</li>
+ *     <li>generate_feed reads the user and every followed user,</li>
+ *     <li>scroll_through_feed changes the user and every followed user, whose posts it may like,</li>
+ *     <li>sort_posts reads the user.</li>
+ * </ul>
+ * Snapshot commands involve the whole model, so each runs alone between two windows.
+ */
+public class ParallelReplayer implements Closeable {
+    /**
+     * The state of one user or post as far as the analysis is concerned: the commands of the
+     * current window that last accessed it and the structural facts that decide which state
+     * later commands involve.
+     */
+    private static final class Resource {
+        int window = -1; // Window the accesses below belong to
+        ReplayCommand lastWriter; // Last command of the window changing the state
+        ArrayList<ReplayCommand> readers; // Commands of the window reading the state since the last writer
+        boolean exists; // Whether the user has been created
+        HashSet<Resource> followees; // Users the user follows, null while none
+        Resource author; // Author of the post, null while the post does not exist
+    }
+
+    final HashTable<String, User> users = new HashTable<>(HashTable.Engine.STRIPED); // Users by ID
+    final HashTable<String, Post> posts = new HashTable<>(HashTable.Engine.STRIPED); // Posts by ID
+    final IdDictionary<User> userIds = new IdDictionary<>(); // Dense ids of users, guarded by its monitor
+    final IdDictionary<Post> postIds = new IdDictionary<>(); // Dense ids of posts, guarded by its monitor
+    final FollowGraph graph = new FollowGraph(userIds); // Follows between users
+
+    private final OutputWriter writer; // Writer receiving the output in log order
+    private final ForkJoinPool pool; // Workers executing the commands
+    private final ThreadLocal<OutputWriter> localWriters = ThreadLocal.withInitial(OutputWriter::new); // Per-worker buffers
+    private final HashTable<String, Resource> userResources = new HashTable<>(HashTable.Engine.OPEN_ADDRESSING); // Analysis state by user ID
+    private final HashTable<String, Resource> postResources = new HashTable<>(HashTable.Engine.OPEN_ADDRESSING); // Analysis state by post ID
+    private final ReplayCommand[] window; // Commands of the current window in log order
+    private int windowCount; // Number of commands in the current window
+    private int windowNumber; // Number of the current window
+    private CountDownLatch remaining; // Commands of the running window that have not finished
+    private final AtomicReference<Throwable> failure = new AtomicReference<>(); // First failure of a command
+
+    /**
+     * Constructs a replayer.
+     *
+     * @param parallelism the number of worker threads
+     * @param windowSize  the number of commands analysed and executed together
+     * @param writer      the writer receiving the output
+     * @throws IllegalStateException if push mode is enabled, feeds are cached or likes are batched
+     */
+    public ParallelReplayer(int parallelism, int windowSize, OutputWriter writer) {
+        User.shareBetweenThreads();
+        this.writer = writer;
+        this.pool = new ForkJoinPool(parallelism);
+        this.window = new ReplayCommand[windowSize];
+    }
+
+    /**
+     * Replays every command of a reader. Blank lines, unknown commands and commands missing
+     * required arguments are ignored, as in sequential replay.
+     *
+     * @param reader the reader over the command log
+     * @throws IOException if an I/O error occurs or a command fails
+     */
+    public void replay(CommandReader reader) throws IOException {
+        while (reader.nextLine()) {
+            Opcode opcode = reader.opcode();
+            if (opcode == null || reader.tokenCount() < opcode.getMinTokens()) {
+                continue;
+            }
+            ReplayCommand command;
+            try {
+                command = new ReplayCommand(this, opcode, reader);
+            } catch (RuntimeException e) {
+                // Write the output of the commands before the malformed one, as sequential replay would
+                runWindow();
+                throw e;
+            }
+            if (opcode == Opcode.SAVE_SNAPSHOT || opcode == Opcode.LOAD_SNAPSHOT || opcode == Opcode.CHECKPOINT
+                    || opcode == Opcode.STATS) {
+                // Snapshots and statistics cover the whole model, so they run alone between windows
+                runWindow();
+                window[windowCount++] = command;
+                runWindow();
+                if (opcode == Opcode.LOAD_SNAPSHOT) {
+                    resynchronize();
+                }
+                continue;
+            }
+            analyze(command);
+            window[windowCount++] = command;
+            if (windowCount == window.length) {
+                runWindow();
+            }
+        }
+        runWindow();
+    }
+
+    /**
+     * Restores a snapshot into the still empty model before any command is replayed.
+     *
+     * @param snapshot the snapshot to restore
+     * @throws IOException if the snapshot cannot be read or is corrupt
+     */
+    public void load(Snapshot snapshot) throws IOException {
+        snapshot.load(users, posts, userIds, postIds, graph);
+        resynchronize();
+    }
+
+    /**
+     * Records the state a command accesses and updates the simulated structure with its effect.
+     *
+     * @param command the next command in log order
+     */
+    private void analyze(ReplayCommand command) {
+        Resource user = resourceOf(userResources, command.getFirst());
+        switch (command.getOpcode()) {
+            case CREATE_USER -> {
+                access(command, user, true);
+                user.exists = true;
+            }
+            case FOLLOW_USER -> {
+                Resource followed = resourceOf(userResources, command.getSecond());
+                access(command, user, true);
+                access(command, followed, true);
+                if (user != followed && user.exists && followed.exists) {
+                    if (user.followees == null) {
+                        user.followees = new HashSet<>();
+                    }
+                    user.followees.add(followed);
+                }
+            }
+            case UNFOLLOW_USER -> {
+                Resource followed = resourceOf(userResources, command.getSecond());
+                access(command, user, true);
+                access(command, followed, true);
+                if (user.followees != null) {
+                    user.followees.remove(followed);
+                }
+            }
+            case CREATE_POST -> {
+                Resource post = resourceOf(postResources, command.getSecond());
+                access(command, user, true);
+                access(command, post, true);
+                if (user.exists && post.author == null) {
+                    post.author = user;
+                }
+            }
+            case SEE_POST -> {
+                access(command, user, true);
+                access(command, resourceOf(postResources, command.getSecond()), false);
+            }
+            case SEE_ALL_POSTS_FROM_USER -> {
+                access(command, user, true);
+                access(command, resourceOf(userResources, command.getSecond()), false);
+            }
+            case TOGGLE_LIKE -> {
+                Resource post = resourceOf(postResources, command.getSecond());
+                access(command, user, true);
+                access(command, post, false);
+                if (post.author != null) {
+                    access(command, post.author, true);
+                }
+            }
+            case GENERATE_FEED, NEXT_PAGE, SCROLL_THROUGH_FEED -> {
+                // Paging moves the user's position in its feed, and scrolling marks posts seen
+                access(command, user, command.getOpcode() != Opcode.GENERATE_FEED);
+                boolean changes = command.getOpcode() == Opcode.SCROLL_THROUGH_FEED;
+                if (user.followees != null) {
+                    for (Resource followee : user.followees) {
+                        access(command, followee, changes);
+                    }
+                }
+            }
+            case SORT_POSTS -> access(command, user, false);
+            // Follows change the adjacency of both users, so reading one user orders the listing after them
+            case LIST_FOLLOWERS, LIST_FOLLOWEES -> access(command, user, false);
+        }
+    }
+
+    /**
+     * Brings the simulated structure up to date with the model after a snapshot has been loaded.
+     */
+    private void resynchronize() {
+        for (int i = 0; i < userIds.size(); i++) {
+            User user = userIds.get(i);
+            Resource resource = resourceOf(userResources, user.getUserId());
+            resource.exists = true;
+            resource.followees = null;
+            for (int j = 0; j < user.getFolloweeCount(); j++) {
+                if (resource.followees == null) {
+                    resource.followees = new HashSet<>();
+                }
+                resource.followees.add(resourceOf(userResources, userIds.keyOf(user.getFolloweeIndex(j))));
+            }
+        }
+        for (int i = 0; i < postIds.size(); i++) {
+            Post post = postIds.get(i);
+            resourceOf(postResources, post.getPostID()).author = resourceOf(userResources, post.getAuthor());
+        }
+    }
+
+    /**
+     * Retrieves the analysis state for an ID, creating it on first sight.
+     *
+     * @param resources the analysis state of users or of posts
+     * @param id        the user or post ID
+     * @return the analysis state
+     */
+    private Resource resourceOf(HashTable<String, Resource> resources, String id) {
+        Resource resource = resources.get(id);
+        if (resource == null) {
+            resource = new Resource();
+            resources.put(id, resource);
+        }
+        return resource;
+    }
+
+    /**
+     * Makes a command wait for the earlier commands of the window that conflict with an access:
+     * a read waits for the last writer, and a write waits for the last writer and every reader since.
+     *
+     * @param command  the command accessing the state
+     * @param resource the state accessed
+     * @param write    whether the command changes the state
+     */
+    private void access(ReplayCommand command, Resource resource, boolean write) {
+        if (resource.window != windowNumber) {
+            // Every command of earlier windows has finished
+            resource.window = windowNumber;
+            resource.lastWriter = null;
+            if (resource.readers != null) {
+                resource.readers.clear();
+            }
+        }
+        command.dependOn(resource.lastWriter);
+        if (write) {
+            if (resource.readers != null) {
+                for (ReplayCommand reader : resource.readers) {
+                    command.dependOn(reader);
+                }
+                resource.readers.clear();
+            }
+            resource.lastWriter = command;
+        } else {
+            if (resource.readers == null) {
+                resource.readers = new ArrayList<>();
+            }
+            resource.readers.add(command);
+        }
+    }
+
+    /**
+     * Executes the commands of the current window and writes their output in log order.
+     *
+     * @throws IOException if an I/O error occurs or a command fails
+     */
+    private void runWindow() throws IOException {
+        if (windowCount == 0) {
+            return;
+        }
+
+        // Find the commands without dependencies before any command can release others
+        ReplayCommand[] roots = new ReplayCommand[windowCount];
+        int rootCount = 0;
+        for (int i = 0; i < windowCount; i++) {
+            if (window[i].isReady()) {
+                roots[rootCount++] = window[i];
+            }
+        }
+        remaining = new CountDownLatch(windowCount);
+        for (int i = 0; i < rootCount; i++) {
+            pool.execute(roots[i]);
+        }
+        try {
+            remaining.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while replaying commands");
+        }
+
+        // Write the output up to the first failed command
+        for (int i = 0; i < windowCount; i++) {
+            if (window[i].output == null) {
+                break;
+            }
+            writer.append(window[i].output);
+            window[i] = null;
+        }
+        windowCount = 0;
+        windowNumber++;
+
+        Throwable cause = failure.get();
+        if (cause instanceof IOException e) {
+            throw e;
+        } else if (cause instanceof RuntimeException e) {
+            throw e;
+        } else if (cause instanceof Error e) {
+            throw e;
+        }
+    }
+
+    /**
+     * Retrieves the output buffer of the calling worker thread.
+     *
+     * @return an in-memory writer
+     */
+    OutputWriter localWriter() {
+        return localWriters.get();
+    }
+
+    /**
+     * Records the failure of a command. Only the first failure is kept.
+     *
+     * @param cause the exception thrown by the command
+     */
+    void fail(Throwable cause) {
+        failure.compareAndSet(null, cause);
+    }
+
+    /**
+     * Records that a command of the running window has finished.
+     */
+    void finished() {
+        remaining.countDown();
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,197 @@
+package concurrent;
+
+import actions.Actions;
+import commands.CommandReader;
+import commands.Opcode;
+import datastructures.HashTable;
+import datastructures.IdDictionary;
+import models.FollowGraph;
+import models.Post;
+import models.User;
+import output.OutputWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One command of a replayed log, copied out of the reader so it can run later on any thread.
+ * A command runs once every command it depends on has finished, keeps its output until the
+ * whole window is written in log order, and then releases the commands that depend on it.
+ */
+final class ReplayCommand extends RecursiveAction {
+    private static final long serialVersionUID = 1L; // Never serialized; declared because ForkJoinTask is Serializable
+
+    private final ParallelReplayer replayer; // Replayer owning the model and the window
+    private final Opcode opcode; // The command
+    private final String first; // First argument, a user ID
+    private final String second; // Second argument, a user or post ID, or null
+    private final String content; // Post content for create_post, or null
+    private final int number; // Feed size for feed commands
+    private final boolean[] likeFlags; // Scroll flags for scroll_through_feed, or null
+    private final ArrayList<ReplayCommand> dependents = new ArrayList<>(); // Commands waiting for this one
+    private final AtomicInteger pending = new AtomicInteger(); // Unfinished commands this one waits for
+    byte[] output; // Output of the command once it has run
+
+    /**
+     * Copies a command out of a reader.
+     *
+     * @param replayer the replayer that will execute the command
+     * @param opcode   the command
+     * @param command  the reader positioned on the command, with at least the required tokens
+     */
+    ReplayCommand(ParallelReplayer replayer, Opcode opcode, CommandReader command) {
+        this.replayer = replayer;
+        this.opcode = opcode;
+        this.first = command.tokenCount() > 1 ? command.token(1) : null;
+        switch (opcode) {
+            case CREATE_USER, SORT_POSTS, LIST_FOLLOWERS, LIST_FOLLOWEES, SAVE_SNAPSHOT, LOAD_SNAPSHOT, CHECKPOINT, STATS -> {
+                this.second = null;
+                this.content = null;
+                this.number = 0;
+                this.likeFlags = null;
+            }
+            case CREATE_POST -> {
+                this.second = command.token(2);
+                this.content = command.remainder(3);
+                this.number = 0;
+                this.likeFlags = null;
+            }
+            case GENERATE_FEED, NEXT_PAGE -> {
+                this.second = null;
+                this.content = null;
+                this.number = command.intToken(2);
+                this.likeFlags = null;
+            }
+            case SCROLL_THROUGH_FEED -> {
+                this.second = null;
+                this.content = null;
+                this.number = command.intToken(2);
+                this.likeFlags = new boolean[command.tokenCount() - 3];
+                for (int i = 0; i < likeFlags.length; i++) {
+                    likeFlags[i] = !command.isZero(3 + i); // Anything other than 0 clicks the like button
+                }
+            }
+            default -> {
+                this.second = command.token(2);
+                this.content = null;
+                this.number = 0;
+                this.likeFlags = null;
+            }
+        }
+    }
+
+    /**
+     * Retrieves the command.
+     *
+     * @return the opcode
+     */
+    Opcode getOpcode() {
+        return opcode;
+    }
+
+    /**
+     * Retrieves the first argument, a user ID or, for snapshot commands, a file path.
+     *
+     * @return the first argument
+     */
+    String getFirst() {
+        return first;
+    }
+
+    /**
+     * Retrieves the second argument of commands naming a second user or a post.
+     *
+     * @return the second argument, or {@code null} if the command has none
+     */
+    String getSecond() {
+        return second;
+    }
+
+    /**
+     * Makes this command wait for another command of the same window.
+     *
+     * @param other the earlier command, or {@code null} for none; a command never waits for itself
+     */
+    void dependOn(ReplayCommand other) {
+        if (other != null && other != this) {
+            other.dependents.add(this);
+            pending.incrementAndGet();
+        }
+    }
+
+    /**
+     * Checks whether the command can start as soon as the window is submitted.
+     *
+     * @return {@code true} if the command depends on no other command
+     */
+    boolean isReady() {
+        return pending.get() == 0;
+    }
+
+    /**
+     * Runs the command, then forks every dependent whose last dependency this was.
+     */
+    @Override
+    protected void compute() {
+        try {
+            OutputWriter writer = replayer.localWriter();
+            execute(replayer.users, replayer.posts, replayer.userIds, replayer.postIds, replayer.graph, writer);
+            output = writer.drain();
+        } catch (Throwable failure) {
+            replayer.localWriter().drain(); // Drop partial output
+            replayer.fail(failure);
+        }
+        for (ReplayCommand dependent : dependents) {
+            if (dependent.pending.decrementAndGet() == 0) {
+                dependent.fork();
+            }
+        }
+        replayer.finished();
+    }
+
+    /**
+     * Executes the command with the same {@link Actions} method the sequential program uses.
+     * Dense ids are assigned under the dictionaries' monitors, since creations of different
+     * users may run at the same time.
+     *
+     * @param users   the hash table of users
+     * @param posts   the hash table of posts
+     * @param userIds the dictionary assigning dense ids to users
+     * @param postIds the dictionary assigning dense ids to posts
+     * @param graph   the graph recording follows between users
+     * @param writer  the writer collecting the output of the command
+     * @throws IOException if an I/O error occurs
+     */
+    private void execute(HashTable<String, User> users, HashTable<String, Post> posts,
+                         IdDictionary<User> userIds, IdDictionary<Post> postIds, FollowGraph graph, OutputWriter writer) throws IOException {
+        switch (opcode) {
+            case CREATE_USER -> {
+                synchronized (userIds) {
+                    Actions.createUser(users, userIds, graph, first, writer);
+                }
+            }
+            case FOLLOW_USER -> Actions.followUser(users, first, second, writer);
+            case UNFOLLOW_USER -> Actions.unfollowUser(users, first, second, writer);
+            case CREATE_POST -> {
+                synchronized (postIds) {
+                    Actions.createPost(users, posts, postIds, first, second, content, writer);
+                }
+            }
+            case SEE_POST -> Actions.seePost(users, posts, first, second, writer);
+            case SEE_ALL_POSTS_FROM_USER -> Actions.seeAllPosts(users, first, second, writer);
+            case TOGGLE_LIKE -> Actions.toggleLike(users, posts, first, second, writer);
+            case GENERATE_FEED -> Actions.generateFeed(users, first, number, writer);
+            case NEXT_PAGE -> Actions.nextPage(users, first, number, writer);
+            case SCROLL_THROUGH_FEED -> Actions.scrollThroughFeed(users, first, number, likeFlags, likeFlags.length, writer);
+            case SORT_POSTS -> Actions.sortPosts(users, first, writer);
+            case LIST_FOLLOWERS -> Actions.listFollowers(users, graph, first, writer);
+            case LIST_FOLLOWEES -> Actions.listFollowees(users, graph, first, writer);
+            case SAVE_SNAPSHOT -> Actions.saveSnapshot(users, userIds, postIds, first, writer);
+            case LOAD_SNAPSHOT -> Actions.loadSnapshot(users, posts, userIds, postIds, graph, first, writer);
+            case CHECKPOINT -> Actions.checkpoint(users, userIds, postIds, null, writer); // Parallel replay does not journal
+            case STATS -> Actions.stats(null, writer); // Parallel replay does not time commands
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package datastructures;
+
+import java.util.Arrays;
+
+/**
+ * A set of dense ids kept in a growable int array, used for the edges of one user in the follow
+ * graph. Iterating the ids is a scan over a primitive array. Removing an id moves the last id
+ * into its slot, so removal takes constant time once the id is found. Short lists find ids by
+ * scanning; beyond {@value #SCAN_LIMIT} ids a linear-probing index from id to array position is
+ * built and kept up to date as ids move.
+ */
+public class AdjacencyList {
+    private static final int SCAN_LIMIT = 8; // Largest list searched without an index
+    private static final int[] EMPTY = new int[0]; // Shared storage of empty lists
+    private static final int FREE = -1; // Marks an unused index slot, ids are never negative
+
+    private int[] ids = EMPTY; // The ids, valid up to the size
+    private int size; // Number of ids
+    private int[] slotIds; // Ids in the index, or FREE; null while the list is short
+    private int[] slotPositions; // Array position of the id in each index slot
+
+    /**
+     * Adds an id to the end of the list.
+     *
+     * @param id the non-negative id to add
+     * @return {@code true} if the id was added, {@code false} if it was already present
+     */
+    public boolean add(int id) {
+        if (indexOf(id) >= 0) {
+            return false;
+        }
+        if (size == ids.length) {
+            int[] newIds = new int[Math.max(4, 2 * size)];
+            System.arraycopy(ids, 0, newIds, 0, size);
+            ids = newIds;
+        }
+        ids[size] = id;
+        size++;
+        if (slotIds != null) {
+            if (2 * size > slotIds.length) {
+                rebuildIndex(); // Keep the index at most half full
+            } else {
+                insertSlot(id, size - 1);
+            }
+        } else if (size > SCAN_LIMIT) {
+            rebuildIndex();
+        }
+        return true;
+    }
+
+    /**
+     * Removes an id by moving the last id into its position.
+     *
+     * @param id the id to remove
+     * @return {@code true} if the id was removed, {@code false} if it was not present
+     */
+    public boolean remove(int id) {
+        int position = indexOf(id);
+        if (position < 0) {
+            return false;
+        }
+        int last = ids[--size];
+        ids[position] = last;
+        if (slotIds != null) {
+            deleteSlot(id);
+            if (last != id) {
+                slotPositions[findSlot(last)] = position;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the list contains an id.
+     *
+     * @param id the id to look for
+     * @return {@code true} if the id is present, {@code false} otherwise
+     */
+    public boolean contains(int id) {
+        return indexOf(id) >= 0;
+    }
+
+    /**
+     * Finds the array position of an id.
+     *
+     * @param id the id to look for
+     * @return the position of the id, or -1 if it is not present
+     */
+    public int indexOf(int id) {
+        if (slotIds == null) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        int slot = findSlot(id);
+        return slotIds[slot] == id ? slotPositions[slot] : -1;
+    }
+
+    /**
+     * Retrieves the id at an array position.
+     *
+     * @param position the position, between 0 and the size
+     * @return the id
+     */
+    public int get(int position) {
+        return ids[position];
+    }
+
+    /**
+     * Retrieves the number of ids in the list.
+     *
+     * @return the size of the list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Spreads an id over the index slots.
+     *
+     * @param id the id
+     * @return the home slot of the id
+     */
+    private int homeSlot(int id) {
+        return (id * 0x9E3779B9) >>> Integer.numberOfLeadingZeros(slotIds.length - 1); // High bits of the product
+    }
+
+    /**
+     * Finds the slot holding an id, or the free slot ending its probe sequence.
+     *
+     * @param id the id to look for
+     * @return the slot
+     */
+    private int findSlot(int id) {
+        int mask = slotIds.length - 1;
+        int slot = homeSlot(id);
+        while (slotIds[slot] != FREE && slotIds[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Records the position of an id that is not yet in the index.
+     *
+     * @param id       the id
+     * @param position its array position
+     */
+    private void insertSlot(int id, int position) {
+        int slot = findSlot(id);
+        slotIds[slot] = id;
+        slotPositions[slot] = position;
+    }
+
+    /**
+     * Removes an id from the index, shifting later entries of its probe sequence back so no
+     * tombstones are needed.
+     *
+     * @param id the id to remove
+     */
+    private void deleteSlot(int id) {
+        int mask = slotIds.length - 1;
+        int hole = findSlot(id);
+        int slot = (hole + 1) & mask;
+        while (slotIds[slot] != FREE) {
+            int home = homeSlot(slotIds[slot]);
+            // Move the entry into the hole unless its home lies cyclically after the hole
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                slotIds[hole] = slotIds[slot];
+                slotPositions[hole] = slotPositions[slot];
+                hole = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slotIds[hole] = FREE;
+    }
+
+    /**
+     * Allocates an index with room for twice the current size and fills it from the array.
+     */
+    private void rebuildIndex() {
+        int capacity = Integer.highestOneBit(4 * size - 1);
+        slotIds = new int[capacity];
+        slotPositions = new int[capacity];
+        Arrays.fill(slotIds, FREE);
+        for (int i = 0; i < size; i++) {
+            insertSlot(ids[i], i);
+        }
+    }
+}
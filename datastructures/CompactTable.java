@@ -0,0 +1,136 @@
+package datastructures;
+
+/**
+ * A memory-frugal map for collections that are usually empty or tiny. It allocates nothing
+ * until the first insertion, keeps up to {@value #INLINE_CAPACITY} entries in a single inline
+ * array that is scanned linearly, and only inflates into a {@link HashTable} once it grows past
+ * that threshold. It offers the same operations as {@link HashTable}.
+ *
+ * @param <K> the type of keys maintained by this table
+ * @param <V> the type of mapped values
+ */
+public class CompactTable<K, V> {
+    private static final int INLINE_CAPACITY = 8; // Entries kept inline before inflating
+
+    private Object[] entries; // Keys and values interleaved, null until the first insertion
+    private int size; // Number of inline entries
+    private HashTable<K, V> table; // Hash table holding the entries once inflated
+
+    /**
+     * Finds the position of a key among the inline entries.
+     *
+     * @param key the key to look up
+     * @return the index of the key in the entries array, or -1 if the key does not exist
+     */
+    private int indexOf(K key) {
+        for (int i = 0; i < 2 * size; i += 2) {
+            if (entries[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1; // Key not found
+    }
+
+    /**
+     * Inserts a key-value pair into the table. If the key already exists, the operation fails.
+     *
+     * @param key   the key to insert
+     * @param value the value to associate with the key
+     * @return {@code true} if the key-value pair was inserted, {@code false} if the key already exists
+     */
+    public boolean put(K key, V value) {
+        if (table != null) {
+            return table.put(key, value);
+        }
+        if (indexOf(key) >= 0) {
+            return false; // If key already exists, fail the operation
+        }
+        if (size == INLINE_CAPACITY) {
+            inflate();
+            return table.put(key, value);
+        }
+        if (entries == null || 2 * size == entries.length) {
+            // Grow the inline array geometrically: 2, 4 and then 8 entries
+            Object[] newEntries = new Object[entries == null ? 4 : 2 * entries.length];
+            if (entries != null) {
+                System.arraycopy(entries, 0, newEntries, 0, 2 * size);
+            }
+            entries = newEntries;
+        }
+        entries[2 * size] = key;
+        entries[2 * size + 1] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * Retrieves the value associated with the given key.
+     *
+     * @param key the key to look up
+     * @return the value associated with the key, or {@code null} if the key does not exist
+     */
+    public V get(K key) {
+        if (table != null) {
+            return table.get(key);
+        }
+        int index = indexOf(key);
+        return index < 0 ? null : (V) entries[index + 1];
+    }
+
+    /**
+     * Removes the key-value pair associated with the given key.
+     *
+     * @param key the key to remove
+     * @return {@code true} if the key was found and removed, {@code false} otherwise
+     */
+    public boolean remove(K key) {
+        if (table != null) {
+            return table.remove(key);
+        }
+        int index = indexOf(key);
+        if (index < 0) {
+            return false; // Key not found
+        }
+        // Move the last entry into the freed position
+        size--;
+        entries[index] = entries[2 * size];
+        entries[index + 1] = entries[2 * size + 1];
+        entries[2 * size] = null;
+        entries[2 * size + 1] = null;
+        return true;
+    }
+
+    /**
+     * Checks if the table contains the specified key.
+     *
+     * @param key the key to look for
+     * @return {@code true} if the key exists, {@code false} otherwise
+     */
+    public boolean containsKey(K key) {
+        if (table != null) {
+            return table.containsKey(key);
+        }
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Retrieves the number of key-value pairs in the table.
+     *
+     * @return the number of elements
+     */
+    public int size() {
+        return table != null ? table.size() : size;
+    }
+
+    /**
+     * Moves the inline entries into an open-addressing hash table sized for a few more insertions.
+     */
+    private void inflate() {
+        table = new HashTable<>(HashTable.Engine.OPEN_ADDRESSING, 2 * INLINE_CAPACITY);
+        for (int i = 0; i < 2 * size; i += 2) {
+            table.put((K) entries[i], (V) entries[i + 1]);
+        }
+        entries = null;
+        size = 0;
+    }
+}
@@ -2,48 +2,64 @@ package datastructures;
 
 /**
  * A generic hash table implementation using separate chaining for collision handling.
+ * A table can instead be created with the {@link Engine#OPEN_ADDRESSING} engine, which
+ * stores entries in flat arrays with Robin Hood probing, or the {@link Engine#STRIPED}
+ * engine, which is safe to share between threads, behind the same methods. The
+ * {@link Engine#INCREMENTAL} engine chains like the default one but resizes a few buckets
+ * at a time, so no single insertion pays for rehashing the whole table, and it shrinks again
+ * after heavy removal. Each engine implements {@link TableEngine}, and the table delegates
+ * every operation to the one engine chosen when it is constructed.
  *
  * @param <K> the type of keys maintained by this hash table
  * @param <V> the type of mapped values
  */
 public class HashTable<K, V> {
     /**
-     * Represents a single node in the hash table's linked list.
-     *
-     * @param <K> the type of the key
-     * @param <V> the type of the value
+     * The collision handling strategies a hash table can be created with.
      */
-    private static class Node<K, V> {
-        K key; // Key associated with the node
-        V value; // Value associated with the key
-        Node<K, V> next; // Reference to the next node in the chain
-
-        public Node(K key, V value) {
-            this.key = key;
-            this.value = value;
-        }
+    public enum Engine {
+        CHAINING, // Linked nodes per bucket
+        OPEN_ADDRESSING, // Parallel arrays with Robin Hood linear probing
+        STRIPED, // Thread-safe segments, each guarded by its own lock
+        INCREMENTAL // Linked nodes per bucket, resized a few buckets per operation
     }
 
-    private Node<K, V>[] table; // Array of linked list heads
-    private int size; // Number of elements in the hash table
-    private final int initialCapacity = 100; // Default capacity of the hash table
+    private static final int DEFAULT_OPEN_SIZE = 50; // Elements an open-addressing table has room for by default
+
+    private final TableEngine<K, V> engine; // Engine every operation is delegated to
 
     /**
      * Constructs a new hash table with an initial capacity.
      */
     public HashTable() {
-        this.table = (Node<K, V>[]) new Node[initialCapacity];
-        this.size = 0;
+        this(Engine.CHAINING);
+    }
+
+    /**
+     * Constructs a new hash table that handles collisions with the given engine.
+     *
+     * @param engine the collision handling strategy
+     */
+    public HashTable(Engine engine) {
+        this(engine, 0);
     }
 
     /**
-     * Computes the index in the table array for the given key.
+     * Constructs a new hash table that handles collisions with the given engine and
+     * has room for the expected number of elements without resizing. Presizing a table
+     * that is filled in bulk, such as when a snapshot is loaded, avoids every resize.
      *
-     * @param key the key to hash
-     * @return the index for the given key
+     * @param engine       the collision handling strategy
+     * @param expectedSize the number of elements expected, or 0 for the default capacity
      */
-    private int getBucketIndex(K key) {
-        return Math.abs(key.hashCode() % table.length);
+    public HashTable(Engine engine, int expectedSize) {
+        // Exhaustive over the engines, so a new engine must be named here to compile
+        this.engine = switch (engine) {
+            case CHAINING -> new ChainingTable<>(expectedSize);
+            case OPEN_ADDRESSING -> new OpenAddressingTable<>(expectedSize > 0 ? expectedSize : DEFAULT_OPEN_SIZE);
+            case STRIPED -> new StripedTable<>(expectedSize);
+            case INCREMENTAL -> new IncrementalTable<>(expectedSize);
+        };
     }
 
     /**
@@ -54,28 +70,7 @@ public class HashTable<K, V> {
      * @return {@code true} if the key-value pair was inserted, {@code false} if the key already exists
      */
     public boolean put(K key, V value) {
-        int bucketIndex = getBucketIndex(key);
-        Node<K, V> head = table[bucketIndex]; // Head of the chain at the relevant bucket index
-
-        // Check if the key already exists in the chain
-        while (head != null) {
-            if (head.key.equals(key)) {
-                return false; // If key already exists, fail the operation
-            }
-            head = head.next;
-        }
-
-        // Add a new node to the front of the chain
-        Node<K, V> newNode = new Node<>(key, value);
-        newNode.next = table[bucketIndex];
-        table[bucketIndex] = newNode;
-        size++;
-
-        // Resize the table if the load factor exceeds 0.5
-        if ((1.0 * size) / table.length > 0.5) {
-            resize();
-        }
-        return true;
+        return engine.put(key, value);
     }
 
     /**
@@ -85,17 +80,7 @@ public class HashTable<K, V> {
      * @return the value associated with the key, or {@code null} if the key does not exist
      */
     public V get(K key) {
-        int bucketIndex = getBucketIndex(key);
-        Node<K, V> head = table[bucketIndex]; // Head of the chain at the relevant bucket index
-
-        // Search the chain for the key
-        while (head != null) {
-            if (head.key.equals(key)) {
-                return head.value;
-            }
-            head = head.next;
-        }
-        return null; // Key not found
+        return engine.get(key);
     }
 
     /**
@@ -105,26 +90,7 @@ public class HashTable<K, V> {
      * @return {@code true} if the key was found and removed, {@code false} otherwise
      */
     public boolean remove(K key) {
-        int bucketIndex = getBucketIndex(key);
-        Node<K, V> head = table[bucketIndex];  // Head of the chain at the relevant bucket index
-        Node<K, V> prev = null; // Track the previous node during traversal
-
-        // Search the chain for the key
-        while (head != null) {
-            if (head.key.equals(key)) {
-                // Remove the node
-                if (prev == null) {
-                    table[bucketIndex] = head.next; // Remove the first node
-                } else {
-                    prev.next = head.next; // Skip the current node
-                }
-                size--;
-                return true; // Key removed successfully
-            }
-            prev = head;
-            head = head.next;
-        }
-        return false; // Key not found
+        return engine.remove(key);
     }
 
     /**
@@ -134,24 +100,15 @@ public class HashTable<K, V> {
      * @return {@code true} if the key exists, {@code false} otherwise
      */
     public boolean containsKey(K key) {
-        return get(key) != null;
+        return engine.containsKey(key);
     }
 
     /**
-     * Resizes the hash table when the load factor exceeds 0.5.
-     * Doubles the capacity and rehashes all elements.
+     * Retrieves the number of key-value pairs in the hash table.
+     *
+     * @return the number of elements
      */
-    private void resize() {
-        Node<K, V>[] oldTable = table; // Store the old table
-        table = (Node<K, V>[]) new Node[2 * oldTable.length]; // Double the table capacity
-        size = 0; // Reset the size
-
-        // Rehash all elements in the old table
-        for (Node<K, V> head : oldTable) {
-            while (head != null) {
-                put(head.key, head.value);
-                head = head.next;
-            }
-        }
+    public int size() {
+        return engine.size();
     }
 }
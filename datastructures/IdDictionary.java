@@ -0,0 +1,97 @@
+package datastructures;
+
+/**
+ * Encodes string identifiers as dense integers. Each registered value receives the next
+ * integer in creation order, which can be used to index arrays and bitmaps instead of hashing
+ * the string, and the value can be looked up again by that integer. Registrations must not run
+ * concurrently, but other threads may look up ids they learned about after registration.
+ *
+ * @param <T> the type of values being numbered
+ */
+public class IdDictionary<T> {
+    private volatile String[] keys; // String identifiers by dense id, republished whole when grown
+    private volatile Object[] values; // Registered values by dense id, republished whole when grown
+    private int size; // Number of registered values, which is also the next id
+
+    /**
+     * Constructs a new, empty dictionary.
+     */
+    public IdDictionary() {
+        this(16);
+    }
+
+    /**
+     * Constructs a new, empty dictionary with room for the expected number of values.
+     *
+     * @param expectedSize the number of values expected
+     */
+    public IdDictionary(int expectedSize) {
+        this.keys = new String[Math.max(16, expectedSize)];
+        this.values = new Object[Math.max(16, expectedSize)];
+    }
+
+    /**
+     * Retrieves the id the next registered value will receive.
+     *
+     * @return the next dense id
+     */
+    public int nextId() {
+        return size;
+    }
+
+    /**
+     * Registers a value under the next dense id.
+     *
+     * @param key   the string identifier of the value
+     * @param value the value to register
+     * @return the id assigned to the value
+     */
+    public int add(String key, T value) {
+        String[] keys = this.keys;
+        Object[] values = this.values;
+        if (size == keys.length) {
+            // Fill the grown arrays before publishing them, so threads resolving older ids never see a gap
+            String[] newKeys = new String[2 * size];
+            Object[] newValues = new Object[2 * size];
+            System.arraycopy(keys, 0, newKeys, 0, size);
+            System.arraycopy(values, 0, newValues, 0, size);
+            newKeys[size] = key;
+            newValues[size] = value;
+            this.keys = newKeys;
+            this.values = newValues;
+        } else {
+            keys[size] = key;
+            values[size] = value;
+        }
+        return size++;
+    }
+
+    /**
+     * Retrieves the value registered under the given id.
+     *
+     * @param id the dense id
+     * @return the value, or {@code null} if the id is not assigned
+     */
+    public T get(int id) {
+        return id >= 0 && id < size ? (T) values[id] : null;
+    }
+
+    /**
+     * Retrieves the string identifier registered under the given id.
+     *
+     * @param id the dense id
+     * @return the string identifier, or {@code null} if the id is not assigned
+     */
+    public String keyOf(int id) {
+        return id >= 0 && id < size ? keys[id] : null;
+    }
+
+    /**
+     * Retrieves the number of registered values.
+     *
+     * @return the number of values
+     */
+    public int size() {
+        return size;
+    }
+}
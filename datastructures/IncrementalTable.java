@@ -0,0 +1,252 @@
+package datastructures;
+
+/**
+ * The incrementally resized engine behind {@link HashTable}. Collisions are resolved with
+ * chains like the default engine, but growing or shrinking never rehashes the whole table at
+ * once: the new bucket array is allocated next to the old one, and every insertion or removal
+ * then moves a bounded number of old buckets across. Until the old array is drained, a key
+ * lives in the old array if its bucket there has not been moved yet and in the new array
+ * otherwise, so each lookup still scans a single chain. The worst-case cost of an operation
+ * is the allocation of the new array rather than a pass over every entry.
+ *
+ * @param <K> the type of keys maintained by this table
+ * @param <V> the type of mapped values
+ */
+final class IncrementalTable<K, V> implements TableEngine<K, V> {
+    private static final int MIN_CAPACITY = 16; // Smallest bucket count, always a power of two
+    private static final double MAX_LOAD_FACTOR = 0.75; // Load above which the table grows
+    private static final double MIN_LOAD_FACTOR = 0.125; // Load below which the table shrinks
+    private static final int MIGRATE_BUCKETS = 8; // Old buckets moved per insertion or removal
+
+    /**
+     * Represents a single entry in a chain.
+     *
+     * @param <K> the type of the key
+     * @param <V> the type of the value
+     */
+    private static final class Node<K, V> {
+        final int hash; // Spread hash code of the key, reused when the node moves
+        final K key; // Key associated with the node
+        V value; // Value associated with the key
+        Node<K, V> next; // Next node in the chain
+
+        /**
+         * Constructs a node at the head of a chain.
+         *
+         * @param hash  the spread hash code of the key
+         * @param key   the key
+         * @param value the value
+         * @param next  the previous head of the chain
+         */
+        Node(int hash, K key, V value, Node<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    private final int minCapacity; // Bucket count the table never shrinks below
+    private Node<K, V>[] table; // Buckets new entries are inserted into
+    private Node<K, V>[] oldTable; // Buckets being drained into the table, or null when not resizing
+    private int migrated; // Number of leading old buckets already moved
+    private int size; // Number of entries in both arrays
+
+    /**
+     * Constructs a new table with room for the given number of entries before growing. The
+     * table does not shrink below this capacity either, so a presized table keeps its buckets
+     * through bursts of removals.
+     *
+     * @param expectedSize the number of entries expected
+     */
+    IncrementalTable(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * MAX_LOAD_FACTOR < expectedSize) {
+            capacity *= 2;
+        }
+        minCapacity = capacity;
+        table = allocate(capacity);
+    }
+
+    /**
+     * Allocates an empty bucket array.
+     *
+     * @param capacity the number of buckets, a power of two
+     * @return the bucket array
+     */
+    private static <K, V> Node<K, V>[] allocate(int capacity) {
+        return (Node<K, V>[]) new Node[capacity];
+    }
+
+    /**
+     * Spreads the high bits of a hash code into the low bits used to pick a bucket.
+     *
+     * @param key the key to hash
+     * @return the spread hash code
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Finds the bucket array currently holding the keys with the given hash code.
+     *
+     * @param hash the spread hash code
+     * @return the old array if the key's bucket there has not been moved yet, the table otherwise
+     */
+    private Node<K, V>[] arrayFor(int hash) {
+        if (oldTable != null && (hash & (oldTable.length - 1)) >= migrated) {
+            return oldTable;
+        }
+        return table;
+    }
+
+    /**
+     * Finds the node of a key.
+     *
+     * @param hash the spread hash code of the key
+     * @param key  the key to look up
+     * @return the node, or {@code null} if the key does not exist
+     */
+    private Node<K, V> find(int hash, Object key) {
+        Node<K, V>[] array = arrayFor(hash);
+        for (Node<K, V> node = array[hash & (array.length - 1)]; node != null; node = node.next) {
+            if (node.hash == hash && node.key.equals(key)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Inserts a key-value pair unless the key already exists. The entry joins the chain the key
+     * is looked up in, so it moves to the table along with the rest of its old bucket.
+     *
+     * @param key   the key to insert
+     * @param value the value to associate with the key
+     * @return {@code true} if the pair was inserted, {@code false} if the key already exists
+     */
+    @Override
+    public boolean put(K key, V value) {
+        int hash = hash(key);
+        if (find(hash, key) != null) {
+            return false;
+        }
+        Node<K, V>[] array = arrayFor(hash);
+        int index = hash & (array.length - 1);
+        array[index] = new Node<>(hash, key, value, array[index]);
+        size++;
+        migrate();
+        if (size > table.length * MAX_LOAD_FACTOR) {
+            startResize(2 * table.length);
+        }
+        return true;
+    }
+
+    /**
+     * Retrieves the value associated with a key.
+     *
+     * @param key the key to look up
+     * @return the value, or {@code null} if the key does not exist
+     */
+    @Override
+    public V get(K key) {
+        Node<K, V> node = find(hash(key), key);
+        return node != null ? node.value : null;
+    }
+
+    /**
+     * Removes the entry of a key.
+     *
+     * @param key the key to remove
+     * @return {@code true} if the key was found and removed, {@code false} otherwise
+     */
+    @Override
+    public boolean remove(K key) {
+        int hash = hash(key);
+        Node<K, V>[] array = arrayFor(hash);
+        int index = hash & (array.length - 1);
+        Node<K, V> previous = null;
+        for (Node<K, V> node = array[index]; node != null; previous = node, node = node.next) {
+            if (node.hash == hash && node.key.equals(key)) {
+                if (previous == null) {
+                    array[index] = node.next;
+                } else {
+                    previous.next = node.next;
+                }
+                size--;
+                migrate();
+                if (size < table.length * MIN_LOAD_FACTOR && table.length > minCapacity) {
+                    startResize(table.length / 2);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a key exists.
+     *
+     * @param key the key to look for
+     * @return {@code true} if the key exists, {@code false} otherwise
+     */
+    @Override
+    public boolean containsKey(K key) {
+        return find(hash(key), key) != null;
+    }
+
+    /**
+     * Retrieves the number of entries.
+     *
+     * @return the number of entries
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Starts moving the entries to a bucket array of a new capacity. A resize still in progress
+     * is finished first; this only happens when the size swings by a large fraction within a
+     * few operations, since a drain takes at most an eighth of the old capacity in operations.
+     *
+     * @param capacity the new number of buckets, a power of two
+     */
+    private void startResize(int capacity) {
+        while (oldTable != null) {
+            migrate();
+        }
+        oldTable = table;
+        table = allocate(capacity);
+        migrated = 0;
+    }
+
+    /**
+     * Moves the next old buckets to the table, relinking their nodes without allocating, and
+     * drops the old array once it is drained.
+     */
+    private void migrate() {
+        if (oldTable == null) {
+            return;
+        }
+        int end = Math.min(migrated + MIGRATE_BUCKETS, oldTable.length);
+        int mask = table.length - 1;
+        for (int bucket = migrated; bucket < end; bucket++) {
+            Node<K, V> node = oldTable[bucket];
+            oldTable[bucket] = null;
+            while (node != null) {
+                Node<K, V> next = node.next;
+                int index = node.hash & mask;
+                node.next = table[index];
+                table[index] = node;
+                node = next;
+            }
+        }
+        migrated = end;
+        if (migrated == oldTable.length) {
+            oldTable = null;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package datastructures;
+
+/**
+ * A max-heap of primitive {@code long} keys, each carrying an {@code int} value such as the
+ * position of the element it ranks in an array. Keys and values are held in parallel arrays,
+ * so sifting compares keys in place without dereferencing elements or dispatching through
+ * {@link Comparable}. Only when two keys are equal is the {@link TieBreaker} asked to order
+ * their values, which lets keys that pack a prefix of the ordering stand in for elements
+ * whose full comparison is expensive. The heap is 4-ary, so it is about half as deep as a
+ * binary heap; feed merges build it in linear time, and the pager reuses it without reallocating.
+ */
+public class LongMaxHeap {
+    private static final int ARITY = 4; // Number of children per node
+
+    /**
+     * Orders the values of two entries whose keys are equal.
+     */
+    public interface TieBreaker {
+        /**
+         * Compares the values of two entries with equal keys.
+         *
+         * @param first  the value of the first entry
+         * @param second the value of the second entry
+         * @return a negative integer, zero or a positive integer as the first entry ranks below,
+         * equal to or above the second
+         */
+        int compare(int first, int second);
+    }
+
+    private final TieBreaker ties; // Orders entries with equal keys
+    private long[] keys; // Keys of the entries in heap order, the largest at index 0
+    private int[] values; // Values of the entries, parallel to the keys
+    private int size; // Number of entries in the heap
+
+    /**
+     * Constructs an empty heap.
+     *
+     * @param capacity the initial capacity of the heap
+     * @param ties     the tie breaker ordering entries with equal keys
+     */
+    public LongMaxHeap(int capacity, TieBreaker ties) {
+        this.ties = ties;
+        this.keys = new long[Math.max(capacity, 1)];
+        this.values = new int[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Adds an entry at the end without restoring the heap property; {@link #heapify()} must be
+     * called before the heap is used again.
+     *
+     * @param key   the key of the entry
+     * @param value the value of the entry
+     */
+    public void append(long key, int value) {
+        if (size == keys.length) {
+            grow();
+        }
+        keys[size] = key;
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * Restores the heap property over all entries bottom-up in linear time.
+     */
+    public void heapify() {
+        // Leaves are already heaps, so only the nodes with children are percolated down
+        for (int index = (size - 2) / ARITY; index >= 0; index--) {
+            percolateDown(index, keys[index], values[index]);
+        }
+    }
+
+    /**
+     * Inserts an entry.
+     *
+     * @param key   the key of the entry
+     * @param value the value of the entry
+     */
+    public void insert(long key, int value) {
+        if (size == keys.length) {
+            grow();
+        }
+        int index = size++;
+        // Move larger parents down into the hole until the entry fits
+        while (index > 0) {
+            int parent = (index - 1) / ARITY;
+            if (compare(keys[parent], values[parent], key, value) >= 0) {
+                break;
+            }
+            keys[index] = keys[parent];
+            values[index] = values[parent];
+            index = parent;
+        }
+        keys[index] = key;
+        values[index] = value;
+    }
+
+    /**
+     * Doubles the capacity of the arrays.
+     */
+    private void grow() {
+        long[] newKeys = new long[2 * keys.length];
+        int[] newValues = new int[2 * values.length];
+        System.arraycopy(keys, 0, newKeys, 0, size);
+        System.arraycopy(values, 0, newValues, 0, size);
+        keys = newKeys;
+        values = newValues;
+    }
+
+    /**
+     * Compares two entries by key, consulting the tie breaker only for equal keys.
+     *
+     * @param key        the key of the first entry
+     * @param value      the value of the first entry
+     * @param otherKey   the key of the second entry
+     * @param otherValue the value of the second entry
+     * @return the order of the entries
+     */
+    private int compare(long key, int value, long otherKey, int otherValue) {
+        if (key != otherKey) {
+            return key > otherKey ? 1 : -1;
+        }
+        return ties.compare(value, otherValue);
+    }
+
+    /**
+     * Places an entry at an index, moving it down past its larger children.
+     *
+     * @param index the index of the hole to fill
+     * @param key   the key of the entry
+     * @param value the value of the entry
+     */
+    private void percolateDown(int index, long key, int value) {
+        while (true) {
+            int first = ARITY * index + 1; // Index of the first child
+            if (first >= size) {
+                break; // The entry is a leaf
+            }
+            int end = Math.min(first + ARITY, size); // One past the last child
+            int largest = first;
+            for (int child = first + 1; child < end; child++) {
+                if (compare(keys[child], values[child], keys[largest], values[largest]) > 0) {
+                    largest = child;
+                }
+            }
+            if (compare(keys[largest], values[largest], key, value) <= 0) {
+                break; // The entry is at least as large as all its children
+            }
+            keys[index] = keys[largest]; // Move the largest child up
+            values[index] = values[largest];
+            index = largest;
+        }
+        keys[index] = key;
+        values[index] = value;
+    }
+
+    /**
+     * Retrieves the value of the largest entry.
+     *
+     * @return the value at the root; undefined if the heap is empty
+     */
+    public int peekValue() {
+        return values[0];
+    }
+
+    /**
+     * Replaces the largest entry with another entry in a single pass down the heap.
+     *
+     * @param key   the key of the new entry
+     * @param value the value of the new entry
+     */
+    public void replaceMax(long key, int value) {
+        if (size == 0) {
+            insert(key, value);
+            return;
+        }
+        percolateDown(0, key, value);
+    }
+
+    /**
+     * Removes the largest entry.
+     */
+    public void deleteMax() {
+        if (size == 0) {
+            return;
+        }
+        size--;
+        if (size > 0) {
+            percolateDown(0, keys[size], values[size]); // Move the last entry into the root
+        }
+    }
+
+    /**
+     * Removes every entry, keeping the arrays for reuse.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Retrieves the number of entries in the heap.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the heap is empty.
+     *
+     * @return {@code true} if the heap is empty, {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
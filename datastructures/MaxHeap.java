@@ -1,15 +1,26 @@
 package datastructures;
 
+import java.util.Arrays;
+import java.util.Collection;
+
 /**
  * A generic implementation of a max-heap, which maintains the maximum element
- * at the root.
+ * at the root. The heap is 4-ary: each node has up to four children stored next
+ * to each other, which halves the depth of the tree compared to a binary heap and
+ * keeps the children compared at each level of a removal in the same cache line.
+ * A heap can be built from a collection in linear time, and cleared and rebuilt
+ * without reallocating its array.
+ * <p>
+ * Feeds merge their sources in a {@link LongMaxHeap} instead, so this heap is only the
+ * generic baseline that {@code MaxHeapBenchmark} measures the other heaps against.
  *
  * @param <T> the type of elements stored in the heap; must be comparable
  */
 public class MaxHeap<T extends Comparable<T>> {
-    private T[] heap; // Array representation of the heap
+    private static final int ARITY = 4; // Number of children per node
+
+    private T[] heap; // Array representation of the heap, the root at index 0
     private int size; // Number of elements in the heap
-    private int capacity; // Maximum capacity of the heap
 
     /**
      * Constructs a new MaxHeap with the specified initial capacity.
@@ -17,32 +28,50 @@ public class MaxHeap<T extends Comparable<T>> {
      * @param capacity the initial capacity of the heap
      */
     public MaxHeap(int capacity) {
-        this.capacity = capacity;
         this.size = 0;
-        this.heap = (T[]) new Comparable[capacity + 1]; // Index 0 is unused
+        this.heap = (T[]) new Comparable[Math.max(capacity, 1)];
     }
 
     /**
-     * Swaps two elements in the heap.
+     * Constructs a new MaxHeap holding the given elements, built in linear time.
      *
-     * @param index1 the index of the first element
-     * @param index2 the index of the second element
+     * @param elements the elements to store
      */
-    private void swap(int index1, int index2) {
-        T temp = heap[index1];
-        heap[index1] = heap[index2];
-        heap[index2] = temp;
+    public MaxHeap(Collection<? extends T> elements) {
+        this(elements.size());
+        heapify(elements);
+    }
+
+    /**
+     * Replaces the contents of the heap with the given elements. The elements are copied in
+     * any order and the heap property is then restored bottom-up, which takes linear time
+     * instead of the n log n of inserting them one by one. The array is reused if it is large
+     * enough.
+     *
+     * @param elements the elements to store
+     */
+    public void heapify(Collection<? extends T> elements) {
+        clear();
+        ensureCapacity(elements.size());
+        for (T element : elements) {
+            heap[size++] = element;
+        }
+        // Leaves are already heaps, so only the nodes with children are percolated down
+        for (int index = (size - 2) / ARITY; index >= 0; index--) {
+            percolateDown(index);
+        }
     }
 
     /**
-     * Checks if the heap has reached its capacity and resizes it if necessary.
-     * The capacity is doubled when resizing.
+     * Grows the array if it cannot hold the given number of elements.
+     * The capacity is at least doubled when resizing.
+     *
+     * @param capacity the number of elements the array must hold
      */
-    private void checkCapacity() {
-        if (size == capacity) {
-            capacity *= 2; // Double the capacity
-            T[] newHeap = (T[]) new Comparable[capacity + 1];
-            System.arraycopy(heap, 1, newHeap, 1, size); // Copy elements to new heap
+    private void ensureCapacity(int capacity) {
+        if (capacity > heap.length) {
+            T[] newHeap = (T[]) new Comparable[Math.max(capacity, 2 * heap.length)];
+            System.arraycopy(heap, 0, newHeap, 0, size); // Copy elements to new heap
             heap = newHeap;
         }
     }
@@ -53,23 +82,39 @@ public class MaxHeap<T extends Comparable<T>> {
      * @param value the element to insert
      */
     public void insert(T value) {
-        checkCapacity(); // Ensure sufficient capacity
-        heap[++size] = value; // Add the element to the end
-        percolateUp(size); // Adjust the heap to maintain the max-heap property
+        ensureCapacity(size + 1); // Ensure sufficient capacity
+        heap[size] = value; // Add the element to the end
+        percolateUp(size++); // Adjust the heap to maintain the max-heap property
     }
 
     /**
      * Moves the element at the specified index up to its correct position
-     * to maintain the max-heap property.
+     * to maintain the max-heap property. Parents are shifted down into the hole
+     * and the element is written once at its final position.
      *
      * @param index the index of the element to adjust
      */
     private void percolateUp(int index) {
+        T value = heap[index];
         // While the element is not the root and is greater than its parent
-        while (index > 1 && heap[index / 2].compareTo(heap[index]) < 0) {
-            swap(index, index / 2); // Swap with the parent
-            index = index / 2; // Move up to the parent's index
+        while (index > 0) {
+            int parent = (index - 1) / ARITY;
+            if (heap[parent].compareTo(value) >= 0) {
+                break;
+            }
+            heap[index] = heap[parent]; // Move the parent down
+            index = parent; // Move up to the parent's index
         }
+        heap[index] = value;
+    }
+
+    /**
+     * Retrieves the maximum element (the root) of the heap without removing it.
+     *
+     * @return the maximum element, or {@code null} if the heap is empty
+     */
+    public T peek() {
+        return size == 0 ? null : heap[0];
     }
 
     /**
@@ -81,38 +126,78 @@ public class MaxHeap<T extends Comparable<T>> {
         if (size == 0) {
             return null; // Return null if the heap is empty
         }
-        T max = heap[1]; // The root element (maximum)
-        heap[1] = heap[size--]; // Replace the root with the last element
-        percolateDown(1); // Adjust the heap to maintain the max-heap property
+        T max = heap[0]; // The root element (maximum)
+        heap[0] = heap[--size]; // Replace the root with the last element
+        heap[size] = null; // Release the reference held by the vacated slot
+        if (size > 0) {
+            percolateDown(0); // Adjust the heap to maintain the max-heap property
+        }
+        return max;
+    }
+
+    /**
+     * Replaces the maximum element (the root) of the heap with another element. This costs
+     * a single pass down the heap, where a removal followed by an insertion costs two.
+     *
+     * @param value the element to store instead of the maximum
+     * @return the replaced maximum element, or {@code null} if the heap was empty
+     */
+    public T replaceMax(T value) {
+        if (size == 0) {
+            insert(value);
+            return null;
+        }
+        T max = heap[0];
+        heap[0] = value;
+        percolateDown(0);
         return max;
     }
 
     /**
      * Moves the element at the specified index down to its correct position
-     * to maintain the max-heap property.
+     * to maintain the max-heap property. The largest child is moved up into the
+     * hole at each level and the element is written once at its final position.
      *
      * @param index the index of the element to adjust
      */
     private void percolateDown(int index) {
-        int largest = index;
-        int left = 2 * index; // Left child index
-        int right = 2 * index + 1; // Right child index
-
-        // Compare with left child
-        if (left <= size && heap[left].compareTo(heap[largest]) > 0) {
-            largest = left;
+        T value = heap[index];
+        while (true) {
+            int first = ARITY * index + 1; // Index of the first child
+            if (first >= size) {
+                break; // The element is a leaf
+            }
+            int end = Math.min(first + ARITY, size); // One past the last child
+            int largest = first;
+            for (int child = first + 1; child < end; child++) {
+                if (heap[child].compareTo(heap[largest]) > 0) {
+                    largest = child;
+                }
+            }
+            if (heap[largest].compareTo(value) <= 0) {
+                break; // The element is at least as large as all its children
+            }
+            heap[index] = heap[largest]; // Move the largest child up
+            index = largest;
         }
+        heap[index] = value;
+    }
 
-        // Compare with right child
-        if (right <= size && heap[right].compareTo(heap[largest]) > 0) {
-            largest = right;
-        }
+    /**
+     * Removes every element, keeping the array for reuse.
+     */
+    public void clear() {
+        Arrays.fill(heap, 0, size, null); // Release the references to the elements
+        size = 0;
+    }
 
-        // If the largest is not the current index, swap and continue percolating down
-        if (largest != index) {
-            swap(index, largest); // Swap with the largest child
-            percolateDown(largest);
-        }
+    /**
+     * Retrieves the number of elements in the heap.
+     *
+     * @return the number of elements
+     */
+    public int size() {
+        return size;
     }
 
     /**
@@ -0,0 +1,251 @@
+package datastructures;
+
+/**
+ * The open-addressing engine behind {@link HashTable}. Entries live in parallel key, value
+ * and hash arrays and collisions are resolved with Robin Hood linear probing: an entry that
+ * is further from its home slot takes the place of one that is closer, which keeps probe
+ * sequences short and lets lookups stop early. Removal shifts the following entries back
+ * instead of leaving tombstones.
+ *
+ * @param <K> the type of keys maintained by this table
+ * @param <V> the type of mapped values
+ */
+final class OpenAddressingTable<K, V> implements TableEngine<K, V> {
+    private static final int MIN_CAPACITY = 16; // Smallest slot count, always a power of two
+    private static final double MAX_LOAD_FACTOR = 0.75; // Robin Hood probing stays short up to this load
+
+    private Object[] keys; // Keys by slot, null for an empty slot
+    private Object[] values; // Values by slot
+    private int[] hashes; // Cached spread hash codes by slot
+    private int mask; // Slot count minus one
+    private int size; // Number of entries in the table
+    private int threshold; // Size above which the table grows
+
+    /**
+     * Constructs a new table with room for the given number of entries before growing.
+     *
+     * @param expectedSize the number of entries expected
+     */
+    OpenAddressingTable(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * MAX_LOAD_FACTOR < expectedSize) {
+            capacity *= 2;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Allocates empty slot arrays of the given capacity.
+     *
+     * @param capacity the number of slots, a power of two
+     */
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        hashes = new int[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * MAX_LOAD_FACTOR);
+    }
+
+    /**
+     * Spreads the high bits of a hash code into the low bits used to pick a slot.
+     *
+     * @param key the key to hash
+     * @return the spread hash code
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Computes how far the entry in a slot is from its home slot.
+     *
+     * @param slot the slot index
+     * @return the probe distance of the entry
+     */
+    private int probeDistance(int slot) {
+        return (slot - (hashes[slot] & mask)) & mask;
+    }
+
+    /**
+     * Inserts a key-value pair into the table. If the key already exists, the operation fails.
+     *
+     * @param key   the key to insert
+     * @param value the value to associate with the key
+     * @return {@code true} if the key-value pair was inserted, {@code false} if the key already exists
+     */
+    @Override
+    public boolean put(K key, V value) {
+        int hash = hash(key);
+        int slot = hash & mask;
+        int distance = 0;
+
+        // Look for the key until an empty slot or an entry closer to its home than this key would be
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && keys[slot].equals(key)) {
+                return false; // If key already exists, fail the operation
+            }
+            if (probeDistance(slot) < distance) {
+                break; // The key cannot be further along the probe sequence
+            }
+            slot = (slot + 1) & mask;
+            distance++;
+        }
+
+        if (size >= threshold) {
+            resize();
+            insertNew(hash, key, value); // Slots moved, so probe the new arrays from scratch
+        } else {
+            insertAt(slot, distance, hash, key, value);
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Inserts an entry known to be absent, starting the probe at its home slot.
+     *
+     * @param hash  the spread hash code of the key
+     * @param key   the key
+     * @param value the value
+     */
+    private void insertNew(int hash, Object key, Object value) {
+        int slot = hash & mask;
+        int distance = 0;
+        while (keys[slot] != null && probeDistance(slot) >= distance) {
+            slot = (slot + 1) & mask;
+            distance++;
+        }
+        insertAt(slot, distance, hash, key, value);
+    }
+
+    /**
+     * Places an entry at the given slot, displacing the entries that follow it where needed.
+     *
+     * @param slot     the slot where the entry belongs
+     * @param distance the probe distance of the entry at that slot
+     * @param hash     the spread hash code of the key
+     * @param key      the key
+     * @param value    the value
+     */
+    private void insertAt(int slot, int distance, int hash, Object key, Object value) {
+        while (keys[slot] != null) {
+            int slotDistance = probeDistance(slot);
+            if (slotDistance < distance) {
+                // Take the slot from the entry that is closer to home and carry that entry forward
+                Object displacedKey = keys[slot];
+                Object displacedValue = values[slot];
+                int displacedHash = hashes[slot];
+                keys[slot] = key;
+                values[slot] = value;
+                hashes[slot] = hash;
+                key = displacedKey;
+                value = displacedValue;
+                hash = displacedHash;
+                distance = slotDistance;
+            }
+            slot = (slot + 1) & mask;
+            distance++;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        hashes[slot] = hash;
+    }
+
+    /**
+     * Finds the slot holding the given key.
+     *
+     * @param key the key to look up
+     * @return the slot index, or -1 if the key does not exist
+     */
+    private int findSlot(Object key) {
+        int hash = hash(key);
+        int slot = hash & mask;
+        int distance = 0;
+        while (keys[slot] != null && probeDistance(slot) >= distance) {
+            if (hashes[slot] == hash && keys[slot].equals(key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+            distance++;
+        }
+        return -1; // Key not found
+    }
+
+    /**
+     * Retrieves the value associated with the given key.
+     *
+     * @param key the key to look up
+     * @return the value associated with the key, or {@code null} if the key does not exist
+     */
+    @Override
+    public V get(K key) {
+        int slot = findSlot(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    /**
+     * Checks if the table contains the specified key.
+     *
+     * @param key the key to look for
+     * @return {@code true} if the key exists, {@code false} otherwise
+     */
+    @Override
+    public boolean containsKey(K key) {
+        return findSlot(key) >= 0;
+    }
+
+    /**
+     * Removes the key-value pair associated with the given key.
+     *
+     * @param key the key to remove
+     * @return {@code true} if the key was found and removed, {@code false} otherwise
+     */
+    @Override
+    public boolean remove(K key) {
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return false; // Key not found
+        }
+        // Shift the following entries back by one slot until one is already at its home slot
+        int next = (slot + 1) & mask;
+        while (keys[next] != null && probeDistance(next) > 0) {
+            keys[slot] = keys[next];
+            values[slot] = values[next];
+            hashes[slot] = hashes[next];
+            slot = next;
+            next = (next + 1) & mask;
+        }
+        keys[slot] = null;
+        values[slot] = null;
+        size--;
+        return true;
+    }
+
+    /**
+     * Retrieves the number of entries in the table.
+     *
+     * @return the number of entries
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Doubles the capacity and moves every entry to its slot in the new arrays. The cached hash
+     * codes are reused and no duplicate checks are made, since all keys are known to be distinct.
+     */
+    private void resize() {
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldHashes = hashes;
+        allocate(2 * oldKeys.length);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != null) {
+                insertNew(oldHashes[slot], oldKeys[slot], oldValues[slot]);
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package datastructures;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A generic sorted tree implemented as an AVL tree whose nodes also track the size of their
+ * subtrees, so the size is known in O(1). It keeps its elements sorted, supports insertion and
+ * removal in O(log n) and streaming traversal in descending order.
+ * An element must be removed before any change that affects its ordering and inserted again afterwards.
+ *
+ * @param <T> the type of elements stored in the tree; must be comparable
+ */
+public class RankedTree<T extends Comparable<T>> {
+    /**
+     * Represents a single node of the tree.
+     *
+     * @param <T> the type of the element
+     */
+    private static class Node<T> {
+        T value; // Element stored in the node
+        Node<T> left; // Subtree of smaller elements
+        Node<T> right; // Subtree of greater elements
+        int height; // Height of the subtree rooted at this node
+        int size; // Number of elements in the subtree rooted at this node
+
+        public Node(T value) {
+            this.value = value;
+            this.height = 1;
+            this.size = 1;
+        }
+    }
+
+    private Node<T> root; // Root of the tree
+
+    /**
+     * Inserts an element into the tree.
+     *
+     * @param value the element to insert
+     */
+    public void insert(T value) {
+        root = insert(root, value);
+    }
+
+    /**
+     * Inserts an element into the given subtree.
+     *
+     * @param node  the root of the subtree
+     * @param value the element to insert
+     * @return the new root of the subtree
+     */
+    private Node<T> insert(Node<T> node, T value) {
+        if (node == null) {
+            return new Node<>(value);
+        }
+        if (value.compareTo(node.value) < 0) {
+            node.left = insert(node.left, value);
+        } else {
+            node.right = insert(node.right, value);
+        }
+        return balance(node);
+    }
+
+    /**
+     * Removes an element from the tree. The element must compare the same way it did when it was inserted.
+     *
+     * @param value the element to remove
+     * @return {@code true} if the element was found and removed, {@code false} otherwise
+     */
+    public boolean remove(T value) {
+        int oldSize = size();
+        root = remove(root, value);
+        return size() < oldSize;
+    }
+
+    /**
+     * Removes an element from the given subtree.
+     *
+     * @param node  the root of the subtree
+     * @param value the element to remove
+     * @return the new root of the subtree
+     */
+    private Node<T> remove(Node<T> node, T value) {
+        if (node == null) {
+            return null; // Element not found
+        }
+        int comparison = value.compareTo(node.value);
+        if (comparison < 0) {
+            node.left = remove(node.left, value);
+        } else if (comparison > 0) {
+            node.right = remove(node.right, value);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            // Replace the element with its successor and remove the successor from the right subtree
+            Node<T> successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            node.value = successor.value;
+            node.right = removeMin(node.right);
+        }
+        return balance(node);
+    }
+
+    /**
+     * Removes the smallest element from the given subtree.
+     *
+     * @param node the root of the subtree
+     * @return the new root of the subtree
+     */
+    private Node<T> removeMin(Node<T> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = removeMin(node.left);
+        return balance(node);
+    }
+
+    /**
+     * Returns an iterator over the elements in descending order. The tree must not be modified
+     * while the iterator is in use.
+     *
+     * @return an iterator from the greatest to the smallest element
+     */
+    public Iterator<T> descendingIterator() {
+        return new DescendingIterator();
+    }
+
+    /**
+     * Retrieves the number of elements in the tree.
+     *
+     * @return the number of elements
+     */
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Checks if the tree is empty.
+     *
+     * @return {@code true} if the tree is empty, {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    private int size(Node<T> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private int height(Node<T> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    /**
+     * Recomputes the height and size of a node from its children.
+     *
+     * @param node the node to update
+     */
+    private void update(Node<T> node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    /**
+     * Restores the AVL property at the given node with at most two rotations.
+     *
+     * @param node the node to balance
+     * @return the new root of the subtree
+     */
+    private Node<T> balance(Node<T> node) {
+        update(node);
+        int balanceFactor = height(node.left) - height(node.right);
+        if (balanceFactor > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left); // Left-right case
+            }
+            return rotateRight(node);
+        }
+        if (balanceFactor < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right); // Right-left case
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private Node<T> rotateRight(Node<T> node) {
+        Node<T> pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private Node<T> rotateLeft(Node<T> node) {
+        Node<T> pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    /**
+     * Iterates the tree from the greatest to the smallest element using an explicit stack
+     * of the nodes whose elements are still to be returned.
+     */
+    private class DescendingIterator implements Iterator<T> {
+        private Node<T>[] stack = (Node<T>[]) new Node[Math.max(1, height(root))]; // Path of pending nodes
+        private int top; // Number of nodes on the stack
+
+        DescendingIterator() {
+            pushRightSpine(root);
+        }
+
+        /**
+         * Pushes a node and all of its right descendants onto the stack.
+         *
+         * @param node the first node to push
+         */
+        private void pushRightSpine(Node<T> node) {
+            while (node != null) {
+                stack[top++] = node;
+                node = node.right;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return top > 0;
+        }
+
+        @Override
+        public T next() {
+            if (top == 0) {
+                throw new NoSuchElementException();
+            }
+            Node<T> node = stack[--top];
+            pushRightSpine(node.left); // Elements smaller than the node but greater than the rest of the stack
+            return node.value;
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package datastructures;
+
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed set of non-negative integers in the style of Roaring bitmaps. Values are split
+ * by their high 16 bits into containers; a container holds the low 16 bits either as a sorted
+ * array while it has at most {@value #ARRAY_LIMIT} values or as a 65536-bit bitmap beyond that.
+ * Dense runs of ids therefore cost about one bit each and sparse ones two bytes each.
+ */
+public class RoaringBitmap {
+    private static final int ARRAY_LIMIT = 4096; // Largest cardinality stored as a sorted array
+
+    private char[] keys; // High 16 bits of each container in ascending order, null while empty
+    private Container[] containers; // Containers matching the keys
+    private int size; // Number of containers in use
+    private int cardinality; // Number of values in the set
+
+    /**
+     * Adds a value to the set.
+     *
+     * @param value the value to add
+     * @return {@code true} if the value was added, {@code false} if it was already present
+     */
+    public boolean add(int value) {
+        char high = (char) (value >>> 16);
+        int index = findContainer(high);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, high, new ArrayContainer());
+        }
+        Container container = containers[index];
+        int oldCardinality = container.cardinality;
+        containers[index] = container.add((char) value);
+        if (containers[index].cardinality == oldCardinality) {
+            return false; // Value already present
+        }
+        cardinality++;
+        return true;
+    }
+
+    /**
+     * Removes a value from the set.
+     *
+     * @param value the value to remove
+     * @return {@code true} if the value was removed, {@code false} if it was not present
+     */
+    public boolean remove(int value) {
+        int index = findContainer((char) (value >>> 16));
+        if (index < 0) {
+            return false; // No container for the value
+        }
+        Container container = containers[index];
+        int oldCardinality = container.cardinality;
+        Container updated = container.remove((char) value);
+        if (updated.cardinality == oldCardinality) {
+            return false; // Value not present
+        }
+        cardinality--;
+        if (updated.cardinality == 0) {
+            removeContainer(index);
+        } else {
+            containers[index] = updated;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the set contains a value.
+     *
+     * @param value the value to look for
+     * @return {@code true} if the value is present, {@code false} otherwise
+     */
+    public boolean contains(int value) {
+        int index = findContainer((char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    /**
+     * Retrieves the number of values in the set.
+     *
+     * @return the cardinality of the set
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Performs an action for every value in the set in ascending order.
+     *
+     * @param action the action to perform
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    /**
+     * Copies the values of the set into an array.
+     *
+     * @return the values in ascending order
+     */
+    public int[] toArray() {
+        int[] values = new int[cardinality];
+        int[] count = new int[1];
+        forEach(value -> values[count[0]++] = value);
+        return values;
+    }
+
+    /**
+     * Finds the container for the given high bits with a binary search over the keys.
+     *
+     * @param high the high 16 bits of a value
+     * @return the container index, or {@code -(insertion point) - 1} if there is no such container
+     */
+    private int findContainer(char high) {
+        int low = 0;
+        int highIndex = size - 1;
+        while (low <= highIndex) {
+            int middle = (low + highIndex) >>> 1;
+            if (keys[middle] < high) {
+                low = middle + 1;
+            } else if (keys[middle] > high) {
+                highIndex = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Inserts a container at the given position, growing the arrays if necessary.
+     *
+     * @param index     the position of the new container
+     * @param high      the high 16 bits the container covers
+     * @param container the container to insert
+     */
+    private void insertContainer(int index, char high, Container container) {
+        if (keys == null) {
+            keys = new char[1];
+            containers = new Container[1];
+        } else if (size == keys.length) {
+            char[] newKeys = new char[2 * size];
+            Container[] newContainers = new Container[2 * size];
+            System.arraycopy(keys, 0, newKeys, 0, size);
+            System.arraycopy(containers, 0, newContainers, 0, size);
+            keys = newKeys;
+            containers = newContainers;
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = high;
+        containers[index] = container;
+        size++;
+    }
+
+    /**
+     * Removes the container at the given position.
+     *
+     * @param index the position of the container
+     */
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        containers[--size] = null;
+    }
+
+    /**
+     * Holds the low 16 bits of the values sharing the same high 16 bits.
+     */
+    private abstract static class Container {
+        int cardinality; // Number of values in the container
+
+        /**
+         * Adds a value, converting the container if its representation no longer fits.
+         *
+         * @param value the low 16 bits of the value
+         * @return the container now holding the values
+         */
+        abstract Container add(char value);
+
+        /**
+         * Removes a value, converting the container if its representation no longer fits.
+         *
+         * @param value the low 16 bits of the value
+         * @return the container now holding the values
+         */
+        abstract Container remove(char value);
+
+        abstract boolean contains(char value);
+
+        /**
+         * Performs an action for every value in the container in ascending order.
+         *
+         * @param high   the high 16 bits shared by the values, already shifted into place
+         * @param action the action to perform
+         */
+        abstract void forEach(int high, IntConsumer action);
+    }
+
+    /**
+     * A container storing its values in a sorted array.
+     */
+    private static final class ArrayContainer extends Container {
+        private char[] values = new char[4]; // Sorted values, valid up to the cardinality
+
+        private int indexOf(char value) {
+            int low = 0;
+            int high = cardinality - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (values[middle] < value) {
+                    low = middle + 1;
+                } else if (values[middle] > value) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+
+        @Override
+        Container add(char value) {
+            int index = indexOf(value);
+            if (index >= 0) {
+                return this; // Already present
+            }
+            if (cardinality == ARRAY_LIMIT) {
+                return toBitmap().add(value);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                char[] newValues = new char[Math.min(ARRAY_LIMIT, 2 * values.length)];
+                System.arraycopy(values, 0, newValues, 0, cardinality);
+                values = newValues;
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int index = indexOf(value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return indexOf(value) >= 0;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < cardinality; i++) {
+                action.accept(high | values[i]);
+            }
+        }
+
+        /**
+         * Converts the container into a bitmap container holding the same values.
+         *
+         * @return the bitmap container
+         */
+        private BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.words[values[i] >>> 6] |= 1L << values[i];
+            }
+            bitmap.cardinality = cardinality;
+            return bitmap;
+        }
+    }
+
+    /**
+     * A container storing its values as one bit each in 1024 words.
+     */
+    private static final class BitmapContainer extends Container {
+        private final long[] words = new long[1024]; // One bit per possible low 16-bit value
+
+        @Override
+        Container add(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) == 0) {
+                words[value >>> 6] |= bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) != 0) {
+                words[value >>> 6] &= ~bit;
+                cardinality--;
+                if (cardinality <= ARRAY_LIMIT) {
+                    return toArray();
+                }
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int word = 0; word < words.length; word++) {
+                long bits = words[word];
+                while (bits != 0) {
+                    action.accept(high | (word << 6) + Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1; // Clear the lowest set bit
+                }
+            }
+        }
+
+        /**
+         * Converts the container into an array container holding the same values.
+         *
+         * @return the array container
+         */
+        private ArrayContainer toArray() {
+            ArrayContainer array = new ArrayContainer();
+            array.values = new char[cardinality];
+            int index = 0;
+            for (int word = 0; word < words.length; word++) {
+                long bits = words[word];
+                while (bits != 0) {
+                    array.values[index++] = (char) ((word << 6) + Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1; // Clear the lowest set bit
+                }
+            }
+            array.cardinality = cardinality;
+            return array;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package datastructures;
+
+/**
+ * The lock-striped engine behind {@link HashTable}. Keys are spread over a fixed number of
+ * segments, each an independent chaining table guarded by its own monitor, so threads working on
+ * keys in different segments never contend.
+ *
+ * @param <K> the type of keys maintained by this table
+ * @param <V> the type of mapped values
+ */
+final class StripedTable<K, V> implements TableEngine<K, V> {
+    private static final int SEGMENT_BITS = 6; // 64 segments
+
+    private final ChainingTable<K, V>[] segments; // Independent tables, each guarded by its own monitor
+
+    /**
+     * Constructs a new table with room for the given number of entries before its segments grow.
+     *
+     * @param expectedSize the number of entries expected
+     */
+    StripedTable(int expectedSize) {
+        segments = (ChainingTable<K, V>[]) new ChainingTable[1 << SEGMENT_BITS];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new ChainingTable<>(expectedSize >> SEGMENT_BITS);
+        }
+    }
+
+    /**
+     * Picks the segment for a key from the high bits of its mixed hash code, which are
+     * independent of the low bits the segment uses to pick a bucket.
+     *
+     * @param key the key to look up
+     * @return the segment holding the key
+     */
+    private ChainingTable<K, V> segmentFor(Object key) {
+        return segments[(key.hashCode() * 0x9E3779B9) >>> (32 - SEGMENT_BITS)];
+    }
+
+    @Override
+    public boolean put(K key, V value) {
+        ChainingTable<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.put(key, value);
+        }
+    }
+
+    @Override
+    public V get(K key) {
+        ChainingTable<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    @Override
+    public boolean remove(K key) {
+        ChainingTable<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.remove(key);
+        }
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        ChainingTable<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.containsKey(key);
+        }
+    }
+
+    /**
+     * Retrieves the number of entries by summing the segments one at a time. The result is
+     * exact only when no other thread is modifying the table.
+     *
+     * @return the number of entries
+     */
+    @Override
+    public int size() {
+        int size = 0;
+        for (ChainingTable<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,51 @@
+package datastructures;
+
+/**
+ * The operations every engine behind {@link HashTable} provides. A hash table delegates each
+ * call to the single engine chosen from its {@link HashTable.Engine} when it is constructed,
+ * so adding an engine means implementing this interface and naming it in that choice.
+ *
+ * @param <K> the type of keys maintained by the engine
+ * @param <V> the type of mapped values
+ */
+interface TableEngine<K, V> {
+    /**
+     * Inserts a key-value pair. If the key already exists, the operation fails.
+     *
+     * @param key   the key to insert
+     * @param value the value to associate with the key
+     * @return {@code true} if the pair was inserted, {@code false} if the key already exists
+     */
+    boolean put(K key, V value);
+
+    /**
+     * Retrieves the value associated with a key.
+     *
+     * @param key the key to look up
+     * @return the value, or {@code null} if the key does not exist
+     */
+    V get(K key);
+
+    /**
+     * Removes the entry of a key.
+     *
+     * @param key the key to remove
+     * @return {@code true} if the key was found and removed, {@code false} otherwise
+     */
+    boolean remove(K key);
+
+    /**
+     * Checks whether a key exists.
+     *
+     * @param key the key to look for
+     * @return {@code true} if the key exists, {@code false} otherwise
+     */
+    boolean containsKey(K key);
+
+    /**
+     * Retrieves the number of entries.
+     *
+     * @return the number of entries
+     */
+    int size();
+}
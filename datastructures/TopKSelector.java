@@ -0,0 +1,144 @@
+package datastructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Selects the largest elements of a stream while keeping only as many as requested. The
+ * selected elements are held in a bounded 4-ary min-heap whose root is the smallest of them,
+ * so an offered element that does not beat the root is rejected with a single comparison,
+ * and one that does replaces the root. Selecting {@code k} of {@code n} elements takes
+ * O(n log k) time and O(k) space instead of heapifying all {@code n}.
+ *
+ * @param <T> the type of elements selected; must be comparable
+ */
+public class TopKSelector<T extends Comparable<T>> {
+    private static final int ARITY = 4; // Number of children per node
+
+    private final T[] heap; // Min-heap of the selected elements, the smallest at index 0
+    private int size; // Number of elements selected so far
+
+    /**
+     * Constructs a selector keeping the given number of elements.
+     *
+     * @param k the number of elements to keep
+     */
+    public TopKSelector(int k) {
+        this.heap = (T[]) new Comparable[Math.max(k, 0)];
+        this.size = 0;
+    }
+
+    /**
+     * Offers an element, keeping it if it is among the largest seen so far.
+     *
+     * @param value the element to offer
+     * @return {@code true} if the element was kept, {@code false} if it was rejected
+     */
+    public boolean offer(T value) {
+        if (size < heap.length) {
+            percolateUp(size++, value);
+            return true;
+        }
+        if (size == 0 || value.compareTo(heap[0]) <= 0) {
+            return false; // Not larger than the smallest element kept
+        }
+        percolateDown(0, value); // Replace the smallest element kept
+        return true;
+    }
+
+    /**
+     * Places an element at an index, moving it up past its larger parents.
+     *
+     * @param index the index of the hole to fill
+     * @param value the element to place
+     */
+    private void percolateUp(int index, T value) {
+        while (index > 0) {
+            int parent = (index - 1) / ARITY;
+            if (heap[parent].compareTo(value) <= 0) {
+                break;
+            }
+            heap[index] = heap[parent]; // Move the parent down
+            index = parent;
+        }
+        heap[index] = value;
+    }
+
+    /**
+     * Places an element at an index, moving it down past its smaller children.
+     *
+     * @param index the index of the hole to fill
+     * @param value the element to place
+     */
+    private void percolateDown(int index, T value) {
+        while (true) {
+            int first = ARITY * index + 1; // Index of the first child
+            if (first >= size) {
+                break;
+            }
+            int end = Math.min(first + ARITY, size); // One past the last child
+            int smallest = first;
+            for (int child = first + 1; child < end; child++) {
+                if (heap[child].compareTo(heap[smallest]) < 0) {
+                    smallest = child;
+                }
+            }
+            if (heap[smallest].compareTo(value) >= 0) {
+                break;
+            }
+            heap[index] = heap[smallest]; // Move the smallest child up
+            index = smallest;
+        }
+        heap[index] = value;
+    }
+
+    /**
+     * Removes the selected elements and returns them from largest to smallest. The selector is
+     * empty afterwards and can be reused.
+     *
+     * @return the selected elements in descending order
+     */
+    public ArrayList<T> drainDescending() {
+        Object[] sorted = new Object[size];
+        // Repeatedly removing the minimum fills the result from the back
+        for (int i = size - 1; i >= 0; i--) {
+            sorted[i] = heap[0];
+            T last = heap[--size];
+            heap[size] = null;
+            if (size > 0) {
+                percolateDown(0, last);
+            }
+        }
+        ArrayList<T> result = new ArrayList<>(sorted.length);
+        for (Object element : sorted) {
+            result.add((T) element);
+        }
+        return result;
+    }
+
+    /**
+     * Discards the selected elements, keeping the array for reuse.
+     */
+    public void clear() {
+        Arrays.fill(heap, 0, size, null); // Release the references to the elements
+        size = 0;
+    }
+
+    /**
+     * Retrieves the number of elements selected so far.
+     *
+     * @return the number of elements, at most the requested count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if no element has been selected.
+     *
+     * @return {@code true} if the selector is empty, {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
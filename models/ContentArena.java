@@ -0,0 +1,108 @@
+package models;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * An append-only store for the content of posts outside the Java heap. Content is never read
+ * on the hot paths, yet as one {@code String} per post it makes up most of the old generation
+ * and of the work of every full collection. The arena instead encodes each content as UTF-8
+ * into large direct buffers, the slabs, and a post only keeps the address and length of its
+ * bytes; the content is decoded again only when it is asked for.
+ * <p>
+ * An address holds the index of the slab in its upper 32 bits and the offset within the slab
+ * in its lower 32 bits. Content larger than a slab gets a slab of its own. Content is never
+ * freed, so the arena only grows. Appending is synchronized, and reading is safe from any
+ * thread that obtained the address through the model.
+ */
+public final class ContentArena {
+    private static final ByteBuffer[] NO_SLABS = new ByteBuffer[0]; // Slabs of an empty arena
+
+    private final int slabBytes; // Capacity of a regular slab
+    private volatile ByteBuffer[] slabs = NO_SLABS; // Every slab in allocation order, replaced when one is added
+    private ByteBuffer current; // Slab content is appended to, or null before the first append
+    private int position; // Offset of the first free byte of the current slab
+    private volatile long usedBytes; // Bytes of content stored
+    private volatile long allocatedBytes; // Bytes of every slab allocated
+
+    /**
+     * Constructs an empty arena. No memory is allocated before the first append.
+     *
+     * @param slabBytes the capacity of a slab in bytes
+     */
+    public ContentArena(int slabBytes) {
+        this.slabBytes = slabBytes;
+    }
+
+    /**
+     * Stores encoded content at the end of the current slab, starting a new slab if it does not fit.
+     *
+     * @param bytes the content encoded as UTF-8
+     * @return the address of the stored bytes
+     */
+    synchronized long append(byte[] bytes) {
+        if (current == null || bytes.length > current.capacity() - position) {
+            addSlab(Math.max(slabBytes, bytes.length)); // Oversized content gets a slab of its own
+        }
+        long address = (long) (slabs.length - 1) << 32 | position;
+        current.put(position, bytes);
+        position += bytes.length;
+        usedBytes += bytes.length;
+        return address;
+    }
+
+    /**
+     * Allocates a slab and makes it the current one.
+     *
+     * @param capacity the capacity of the slab in bytes
+     */
+    private void addSlab(int capacity) {
+        current = ByteBuffer.allocateDirect(capacity);
+        position = 0;
+        ByteBuffer[] grown = Arrays.copyOf(slabs, slabs.length + 1);
+        grown[slabs.length] = current;
+        slabs = grown; // Published after the slab is in place, so readers never see a missing slab
+        allocatedBytes += capacity;
+    }
+
+    /**
+     * Decodes stored content.
+     *
+     * @param address the address returned when the content was stored
+     * @param length  the number of bytes stored
+     * @return the content
+     */
+    String read(long address, int length) {
+        byte[] bytes = new byte[length];
+        slabs[(int) (address >>> 32)].get((int) address, bytes); // Absolute, so concurrent reads do not interfere
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Retrieves the number of slabs allocated.
+     *
+     * @return the slab count
+     */
+    public int getSlabCount() {
+        return slabs.length;
+    }
+
+    /**
+     * Retrieves the number of bytes of content stored.
+     *
+     * @return the used size in bytes
+     */
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Retrieves the number of bytes allocated off the heap for slabs.
+     *
+     * @return the allocated size in bytes
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+}
@@ -0,0 +1,224 @@
+package models;
+
+import java.util.ArrayList;
+
+/**
+ * A cache of collected feeds, one entry per user, bounded by an estimate of the memory its
+ * entries retain. Entries are validated rather than invalidated: every change that can alter
+ * a feed bumps a version counter of the user it belongs to, the viewer when its follows or
+ * seen posts change and the author when its posts are created or their likes change. An
+ * entry remembers the viewer's version and the sum of the followed users' versions, and is
+ * served only while both are unchanged, so a stale feed is never served and a write costs a
+ * single increment however many followers would be affected. When the budget is exceeded the
+ * least recently used entries are evicted.
+ * <p>
+ * The cache is not thread-safe and must only be enabled when commands run on a single thread.
+ */
+public final class FeedCache {
+    private static final long ENTRY_BYTES = 64; // Estimated size of an entry and its list, without the post references
+    private static final long REFERENCE_BYTES = 8; // Estimated size of one post reference in a list
+
+    /**
+     * A collected feed of one user, linked into the recency list.
+     */
+    static final class Entry {
+        final User user; // The user whose feed is cached
+        final ArrayList<Post> posts; // The collected posts in descending order
+        final int limit; // The number of posts requested when the feed was collected
+        final long viewerVersion; // Version of the viewer when the feed was collected
+        final long sourcesVersion; // Sum of the followed users' versions when the feed was collected
+        final long bytes; // Estimated memory retained by the entry
+        Entry previous; // More recently used entry, or null for the most recent
+        Entry next; // Less recently used entry, or null for the least recent
+
+        /**
+         * Constructs an entry.
+         *
+         * @param user  the user whose feed is cached
+         * @param posts the collected posts
+         * @param limit the number of posts requested
+         */
+        Entry(User user, ArrayList<Post> posts, int limit) {
+            this.user = user;
+            this.posts = posts;
+            this.limit = limit;
+            this.viewerVersion = user.feedVersion;
+            this.sourcesVersion = user.feedSourcesVersion();
+            this.bytes = ENTRY_BYTES + REFERENCE_BYTES * posts.size();
+        }
+
+        /**
+         * Checks whether the entry holds the feed for a number of posts: the first {@code limit}
+         * posts of a longer feed are the same, and a feed that ran out of posts is complete.
+         *
+         * @param limit the number of posts requested
+         * @return {@code true} if the entry can answer the request
+         */
+        boolean covers(int limit) {
+            return limit <= this.limit || posts.size() < this.limit;
+        }
+    }
+
+    private final long budget; // Most bytes the entries may retain
+    private long bytes; // Estimated bytes retained by the entries
+    private int entryCount; // Number of entries
+    private Entry head; // Most recently used entry, or null when empty
+    private Entry tail; // Least recently used entry, or null when empty
+    private long hits; // Feeds served from the cache
+    private long misses; // Feeds that had to be collected
+    private long evictions; // Entries evicted to stay within the budget
+
+    /**
+     * Constructs an empty cache.
+     *
+     * @param budget the most bytes the entries may retain
+     */
+    public FeedCache(long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Looks up the feed of a user.
+     *
+     * @param user  the user whose feed is requested
+     * @param limit the number of posts requested
+     * @return the first {@code limit} posts of the feed, or {@code null} if the feed must be collected
+     */
+    ArrayList<Post> get(User user, int limit) {
+        Entry entry = user.cachedFeed;
+        if (entry == null || !entry.covers(limit)) {
+            misses++;
+            return null;
+        }
+        if (user.feedVersion != entry.viewerVersion || user.feedSourcesVersion() != entry.sourcesVersion) {
+            unlink(entry);
+            misses++;
+            return null;
+        }
+        hits++;
+        if (entry != head) {
+            unlink(entry);
+            linkFirst(entry);
+        }
+        return limit >= entry.posts.size() ? entry.posts : new ArrayList<>(entry.posts.subList(0, limit));
+    }
+
+    /**
+     * Caches the feed of a user, replacing the previous one, and evicts the least recently
+     * used entries beyond the budget.
+     *
+     * @param user  the user whose feed was collected
+     * @param posts the collected posts, which must not be modified afterwards
+     * @param limit the number of posts requested
+     */
+    void put(User user, ArrayList<Post> posts, int limit) {
+        if (user.cachedFeed != null) {
+            unlink(user.cachedFeed);
+        }
+        Entry entry = new Entry(user, posts, limit);
+        if (entry.bytes > budget) {
+            return; // Would evict everything else and itself
+        }
+        linkFirst(entry);
+        while (bytes > budget) {
+            unlink(tail);
+            evictions++;
+        }
+    }
+
+    /**
+     * Adds an entry as the most recently used.
+     *
+     * @param entry the entry to add
+     */
+    private void linkFirst(Entry entry) {
+        entry.previous = null;
+        entry.next = head;
+        if (head != null) {
+            head.previous = entry;
+        } else {
+            tail = entry;
+        }
+        head = entry;
+        entry.user.cachedFeed = entry;
+        bytes += entry.bytes;
+        entryCount++;
+    }
+
+    /**
+     * Removes an entry from the cache.
+     *
+     * @param entry the entry to remove
+     */
+    private void unlink(Entry entry) {
+        if (entry.previous != null) {
+            entry.previous.next = entry.next;
+        } else {
+            head = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.previous = entry.previous;
+        } else {
+            tail = entry.previous;
+        }
+        entry.previous = null;
+        entry.next = null;
+        entry.user.cachedFeed = null;
+        bytes -= entry.bytes;
+        entryCount--;
+    }
+
+    /**
+     * Retrieves the number of feeds served from the cache.
+     *
+     * @return the hit count
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Retrieves the number of feeds that had to be collected.
+     *
+     * @return the miss count
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Retrieves the number of entries evicted to stay within the budget.
+     *
+     * @return the eviction count
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Retrieves the number of cached feeds.
+     *
+     * @return the entry count
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Retrieves the estimated memory retained by the cached feeds.
+     *
+     * @return the estimated size in bytes
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Retrieves the most memory the cached feeds may retain.
+     *
+     * @return the budget in bytes
+     */
+    public long getBudget() {
+        return budget;
+    }
+}
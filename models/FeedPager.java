@@ -0,0 +1,73 @@
+package models;
+
+import datastructures.LongMaxHeap;
+import datastructures.RoaringBitmap;
+
+import java.util.ArrayList;
+
+/**
+ * A user's position while paging through its feed. The k-way merge behind a feed is kept
+ * alive between pages, so each page costs O(F + n log F) for {@code n} posts from {@code F}
+ * sources without reopening a cursor per followed user. The merge is only valid while the
+ * rankings it iterates are unchanged, which the pager checks against the same version
+ * counters as the feed cache, summed over the followed users in O(F). When the viewer's
+ * follows or seen posts have changed, or a followed user has posted or had likes change,
+ * the merge is rebuilt over the current rankings, skipping the posts already paged through.
+ * Like a feed's merge, the heap ranks the cursors by the sort keys of their posts.
+ */
+final class FeedPager {
+    private final LongMaxHeap cursors = new LongMaxHeap(16, this::compareTies); // Merge over the feed's sources, reused across rebuilds
+    private PostCursor[] merged = new PostCursor[0]; // Cursors of the merge by their position in the heap values
+    private final RoaringBitmap paged = new RoaringBitmap(); // Indexes of the posts already paged through
+    private boolean built; // Whether the merge has been built
+    private long viewerVersion; // Version of the viewer when the merge was built
+    private long sourcesVersion; // Sum of the followed users' versions when the merge was built
+
+    /**
+     * Retrieves the next posts of a user's feed.
+     *
+     * @param viewer the user paging through its feed
+     * @param count  the maximum number of posts to retrieve
+     * @return the posts in descending order, fewer than {@code count} once the feed is exhausted
+     */
+    ArrayList<Post> nextPage(User viewer, int count) {
+        long sources = viewer.feedSourcesVersion();
+        if (!built || viewer.feedVersion != viewerVersion || sources != sourcesVersion) {
+            // The rankings the cursors iterate may have changed, so merge the current ones again
+            merged = viewer.feedSources(paged).toArray(new PostCursor[0]);
+            cursors.clear();
+            for (int i = 0; i < merged.length; i++) {
+                cursors.append(merged[i].key(), i);
+            }
+            cursors.heapify();
+            built = true;
+            viewerVersion = viewer.feedVersion;
+            sourcesVersion = sources;
+        }
+        ArrayList<Post> page = new ArrayList<>(Math.max(count, 0));
+        while (page.size() < count && !cursors.isEmpty()) {
+            int source = cursors.peekValue(); // The cursor holding the highest ranked post
+            PostCursor cursor = merged[source];
+            Post post = cursor.current();
+            page.add(post);
+            paged.add(post.getIndex());
+            if (cursor.advance()) {
+                cursors.replaceMax(cursor.key(), source);
+            } else {
+                cursors.deleteMax();
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Orders two cursors of the merge whose posts have equal sort keys.
+     *
+     * @param first  the position of the first cursor
+     * @param second the position of the second cursor
+     * @return the order of the cursors' posts
+     */
+    private int compareTies(int first, int second) {
+        return merged[first].compareTies(merged[second]);
+    }
+}
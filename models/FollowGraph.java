@@ -0,0 +1,188 @@
+package models;
+
+import datastructures.AdjacencyList;
+import datastructures.IdDictionary;
+
+import java.util.ArrayList;
+
+/**
+ * The directed graph of who follows whom. Each user keeps its followed users and its followers
+ * as {@link AdjacencyList}s of dense user ids, so each edge is stored once per direction as a
+ * primitive int, unfollowing takes constant time and follower counts are always known. The
+ * graph resolves dense ids back to users through the dictionary the users are registered in,
+ * and holds the {@link PostStore} with the ranking keys of the users' posts.
+ */
+public class FollowGraph {
+    private final IdDictionary<User> userIds; // Users by dense id
+    private final PostStore postStore = new PostStore(); // Columns of the ranking keys of the users' posts
+
+    /**
+     * Constructs a graph over the users registered in a dictionary.
+     *
+     * @param userIds the dictionary assigning dense ids to users
+     */
+    public FollowGraph(IdDictionary<User> userIds) {
+        this.userIds = userIds;
+    }
+
+    /**
+     * Adds an edge from a follower to a followed user.
+     *
+     * @param follower the user who follows
+     * @param followed the user who is followed
+     * @return {@code true} if the edge was added, {@code false} if it already existed
+     */
+    boolean addEdge(User follower, User followed) {
+        if (follower.followees == null) {
+            follower.followees = new AdjacencyList();
+        }
+        if (!follower.followees.add(followed.getIndex())) {
+            return false;
+        }
+        if (followed.followers == null) {
+            followed.followers = new AdjacencyList();
+        }
+        followed.followers.add(follower.getIndex());
+        return true;
+    }
+
+    /**
+     * Removes the edge from a follower to a followed user.
+     *
+     * @param follower the user who follows
+     * @param followed the user who is followed
+     * @return {@code true} if the edge was removed, {@code false} if it did not exist
+     */
+    boolean removeEdge(User follower, User followed) {
+        if (follower.followees == null || !follower.followees.remove(followed.getIndex())) {
+            return false;
+        }
+        followed.followers.remove(follower.getIndex());
+        return true;
+    }
+
+    /**
+     * Retrieves the store holding the like counts and ranking keys of the users' posts.
+     *
+     * @return the post store
+     */
+    PostStore getPostStore() {
+        return postStore;
+    }
+
+    /**
+     * Resolves a dense user id.
+     *
+     * @param index the dense id of a user
+     * @return the user
+     */
+    public User userAt(int index) {
+        return userIds.get(index);
+    }
+
+    /**
+     * Checks whether one user follows another.
+     *
+     * @param follower the user who may follow
+     * @param followed the user who may be followed
+     * @return {@code true} if the edge exists
+     */
+    public boolean follows(User follower, User followed) {
+        return contains(follower.followees, followed.getIndex());
+    }
+
+    /**
+     * Retrieves the number of users a user follows.
+     *
+     * @param user the user
+     * @return the number of followed users
+     */
+    public int getFolloweeCount(User user) {
+        return size(user.followees);
+    }
+
+    /**
+     * Retrieves the number of users following a user.
+     *
+     * @param user the user
+     * @return the number of followers
+     */
+    public int getFollowerCount(User user) {
+        return size(user.followers);
+    }
+
+    /**
+     * Retrieves the users a user follows.
+     *
+     * @param user the user
+     * @return a new list of the followed users in no particular order
+     */
+    public ArrayList<User> getFollowees(User user) {
+        return resolve(user.followees);
+    }
+
+    /**
+     * Retrieves the users following a user.
+     *
+     * @param user the user
+     * @return a new list of the followers in no particular order
+     */
+    public ArrayList<User> getFollowers(User user) {
+        return resolve(user.followers);
+    }
+
+    /**
+     * Checks that every edge is recorded in both directions.
+     *
+     * @param user the user whose edges are checked
+     * @return {@code true} if every followed user lists the user as a follower and every follower lists it as followed
+     */
+    public boolean isConsistent(User user) {
+        for (int i = 0; i < size(user.followees); i++) {
+            if (!contains(userAt(user.followees.get(i)).followers, user.getIndex())) {
+                return false;
+            }
+        }
+        for (int i = 0; i < size(user.followers); i++) {
+            if (!contains(userAt(user.followers.get(i)).followees, user.getIndex())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Resolves every id of an adjacency list.
+     *
+     * @param ids the dense user ids, or {@code null} for none
+     * @return a new list of the users
+     */
+    private ArrayList<User> resolve(AdjacencyList ids) {
+        ArrayList<User> users = new ArrayList<>(size(ids));
+        for (int i = 0; i < size(ids); i++) {
+            users.add(userAt(ids.get(i)));
+        }
+        return users;
+    }
+
+    /**
+     * Retrieves the number of ids in an adjacency list that may not have been allocated yet.
+     *
+     * @param ids the dense user ids, or {@code null} for none
+     * @return the number of ids
+     */
+    private static int size(AdjacencyList ids) {
+        return ids == null ? 0 : ids.size();
+    }
+
+    /**
+     * Checks whether an adjacency list that may not have been allocated yet holds an id.
+     *
+     * @param ids the dense user ids, or {@code null} for none
+     * @param id  the dense id to look for
+     * @return {@code true} if the id is in the list
+     */
+    private static boolean contains(AdjacencyList ids, int id) {
+        return ids != null && ids.contains(id);
+    }
+}
@@ -0,0 +1,87 @@
+package models;
+
+import java.util.ArrayList;
+
+/**
+ * Collects the like count changes of posts and applies them in batches. Changing a post's
+ * likes moves it in its author's ranked posts and in the inboxes holding it, so a flood of
+ * likes and unlikes on a viral post repositions the post once per event. Through a
+ * coalescer each event only adds to the post's pending delta; like and unlike pairs cancel
+ * out, and each post is repositioned at most once per batch with the net delta.
+ * <p>
+ * Until a batch is applied, every post keeps its old like count, so the rankings stay
+ * consistent with the posts they hold and may be updated as usual, but they rank by stale
+ * counts. The batch must therefore be applied before anything reads like counts or rankings,
+ * which the dispatcher does before such commands, and it is applied at the latest once the
+ * given number of events have been collected. Who likes which post is recorded immediately,
+ * so the output of liking and unliking is unchanged.
+ * <p>
+ * The coalescer is not thread-safe and must only be enabled when commands run on a single thread.
+ */
+public final class LikeCoalescer {
+    private final int batchSize; // Events collected before the batch is applied
+    private final ArrayList<Post> dirty = new ArrayList<>(); // Posts with a pending delta, possibly repeated
+    private int events; // Events collected in the current batch
+    private long totalEvents; // Events collected over all batches
+    private long applied; // Like count changes applied over all batches
+
+    /**
+     * Constructs a coalescer.
+     *
+     * @param batchSize the number of events collected before the batch is applied
+     */
+    public LikeCoalescer(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Collects a change of a post's like count.
+     *
+     * @param post  the post liked or unliked
+     * @param delta 1 for a like, -1 for an unlike
+     */
+    void add(Post post, int delta) {
+        if (post.pendingLikes == 0) {
+            dirty.add(post); // A post whose pairs cancelled out is added again, and applied once
+        }
+        post.pendingLikes += delta;
+        totalEvents++;
+        if (++events >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Applies the net like count change of every post collected since the last batch.
+     */
+    public void flush() {
+        for (Post post : dirty) {
+            int delta = post.pendingLikes;
+            post.pendingLikes = 0;
+            if (delta != 0) {
+                post.changeLikes(delta); // Cancelled out pairs leave the post where it is
+                applied++;
+            }
+        }
+        dirty.clear();
+        events = 0;
+    }
+
+    /**
+     * Retrieves the number of like and unlike events collected.
+     *
+     * @return the event count
+     */
+    public long getEvents() {
+        return totalEvents;
+    }
+
+    /**
+     * Retrieves the number of like count changes applied to posts, at most one per post and batch.
+     *
+     * @return the applied change count
+     */
+    public long getApplied() {
+        return applied;
+    }
+}
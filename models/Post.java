@@ -1,14 +1,33 @@
 package models;
 
+import datastructures.RankedTree;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
 /**
  * Represents a post in the system. A post has an author, content, a unique post ID,
  * and a like count. It supports liking, unliking, and comparison based on likes.
+ * Once attached to its author, the like count and the keys it is ranked by are kept in
+ * the columns of a {@link PostStore}, and the post itself serves as a view of them.
  */
 public class Post implements Comparable<Post> {
+    // Updates the like count atomically without an AtomicInteger object per post
+    private static final AtomicIntegerFieldUpdater<Post> LIKES = AtomicIntegerFieldUpdater.newUpdater(Post.class, "likes");
+
+    private static ContentArena contentArena; // Arena holding the content of posts off the heap, or null to keep it on the heap
+
     private String author; // The author of the post
     private String postID; // Unique identifier for the post
-    private String content; // Content of the post
-    private int likes; // Number of likes on the post
+    private String content; // Content of the post, or null while it is kept in the content arena
+    private long contentAddress; // Address of the content in the content arena
+    private int contentLength; // Length of the content in the content arena, in UTF-8 bytes
+    private volatile int likes; // Number of likes on the post until it is attached, updated atomically
+    private final int index; // Dense integer id of the post
+    private User owner; // The user whose ranked posts contain this post
+    private PostStore store; // Columns holding the likes and ranking keys once attached, or null before
+    int pendingLikes; // Net like count change collected by the like coalescer and not applied yet
 
     /**
      * Constructs a new Post with the specified author, post ID, and content.
@@ -16,25 +35,106 @@ public class Post implements Comparable<Post> {
      * @param author  the author of the post
      * @param postID  the unique identifier for the post
      * @param content the content of the post
+     * @param index   the dense integer id of the post
      */
-    public Post(String author, String postID, String content) {
+    public Post(String author, String postID, String content, int index) {
         this.author = author;
-        this.content = content;
         this.postID = postID;
+        this.index = index;
+        if (contentArena == null) {
+            this.content = content;
+        } else {
+            byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+            this.contentLength = bytes.length;
+            if (bytes.length > 0) {
+                this.contentAddress = contentArena.append(bytes);
+            }
+        }
+    }
+
+    /**
+     * Constructs a post restored with its like count, for example from a snapshot.
+     *
+     * @param author  the author of the post
+     * @param postID  the unique identifier for the post
+     * @param content the content of the post
+     * @param index   the dense integer id of the post
+     * @param likes   the number of likes on the post
+     */
+    public Post(String author, String postID, String content, int index, int likes) {
+        this(author, postID, content, index);
+        this.likes = likes;
+    }
+
+    /**
+     * Keeps the content of posts created from now on in an off-heap arena instead of a
+     * {@code String} per post. Must be called before any post is created.
+     *
+     * @param arena the arena to store content in, or {@code null} to keep content on the heap
+     */
+    public static void setContentArena(ContentArena arena) {
+        contentArena = arena;
+    }
+
+    /**
+     * Retrieves the arena holding the content of posts.
+     *
+     * @return the arena, or {@code null} if content is kept on the heap
+     */
+    public static ContentArena getContentArena() {
+        return contentArena;
     }
 
     /**
      * Increments the like count for the post.
      */
     public void like() {
-        this.likes++;
+        changeLikes(1);
     }
 
     /**
      * Decrements the like count for the post.
      */
     public void unlike() {
-        this.likes--;
+        changeLikes(-1);
+    }
+
+    /**
+     * Changes the like count and repositions the post in its author's ranked posts.
+     *
+     * @param delta the amount to add to the like count
+     */
+    void changeLikes(int delta) {
+        if (store == null) {
+            LIKES.addAndGet(this, delta);
+            return;
+        }
+        // The post must leave the ranking before its ordering key changes
+        owner.rankedPosts.remove(this);
+        ArrayList<RankedTree<Post>> inboxes = owner.detachFromInboxes(this);
+        store.addLikes(index, delta);
+        owner.rankedPosts.insert(this);
+        owner.touchPosts();
+        if (inboxes != null) {
+            for (RankedTree<Post> inbox : inboxes) {
+                inbox.insert(this);
+            }
+        }
+    }
+
+    /**
+     * Attaches the post to the user whose ranked posts should be kept up to date when the like
+     * count changes, and moves the like count into the columns of the post store. Must be
+     * called before the post is ranked.
+     *
+     * @param owner    the user who created the post
+     * @param store    the store holding the columns of the owner's model
+     * @param sequence the position of the post among the owner's posts
+     */
+    void attach(User owner, PostStore store, int sequence) {
+        store.attach(index, postID, likes, owner.getIndex(), sequence);
+        this.owner = owner;
+        this.store = store;
     }
 
     /**
@@ -46,6 +146,27 @@ public class Post implements Comparable<Post> {
         return postID;
     }
 
+    /**
+     * Retrieves the content of the post, decoding it from the content arena if it is kept there.
+     *
+     * @return the post's content
+     */
+    public String getContent() {
+        if (content != null) {
+            return content;
+        }
+        return contentLength == 0 ? "" : contentArena.read(contentAddress, contentLength);
+    }
+
+    /**
+     * Retrieves the dense integer id of the post.
+     *
+     * @return the post's index
+     */
+    public int getIndex() {
+        return index;
+    }
+
     /**
      * Retrieves the author of the post.
      *
@@ -61,7 +182,7 @@ public class Post implements Comparable<Post> {
      * @return the like count
      */
     public int getLikes() {
-        return likes;
+        return store == null ? likes : store.likes(index);
     }
 
     /**
@@ -75,10 +196,17 @@ public class Post implements Comparable<Post> {
      */
     @Override
     public int compareTo(Post o) {
+        if (store != null && store == o.store) {
+            // Likes and abbreviated IDs are read from the columns; the IDs only decide when those are equal
+            int order = store.compare(index, o.index);
+            return order != 0 ? order : postID.compareTo(o.postID);
+        }
         // Compare posts by the number of likes
-        if (this.likes > o.likes) {
+        int likes = getLikes();
+        int otherLikes = o.getLikes();
+        if (likes > otherLikes) {
             return 1;
-        } else if (this.likes < o.likes) {
+        } else if (likes < otherLikes) {
             return -1;
         } else {
             // If likes are equal, compare by post IDs lexicographically
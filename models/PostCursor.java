@@ -0,0 +1,115 @@
+package models;
+
+import datastructures.RoaringBitmap;
+
+import java.util.Iterator;
+
+/**
+ * A cursor over one author's posts in descending like order that skips the posts
+ * already seen by a viewer, and optionally those already paged through. Cursors compare
+ * by their current post, so a max-heap of cursors performs a k-way merge across several
+ * authors. The sort key and abbreviated ID of the current post are copied from the
+ * {@link PostStore} when the cursor advances, so a merge can rank cursors by their
+ * primitive sort keys and only touch the posts to break ties.
+ */
+class PostCursor implements Comparable<PostCursor> {
+    private final Iterator<Post> rankedPosts; // The author's remaining posts in descending order
+    private final User viewer; // The user whose seen posts are skipped
+    private final RoaringBitmap skipped; // Indexes of further posts to skip, or null for none
+    private final PostStore store; // Columns the ranking keys of the posts are read from
+    private Post current; // The post the cursor currently points to
+    private long currentKey; // Sort key of the current post, its likes and the upper half of its abbreviated ID
+    private long currentIdKey; // Abbreviated ID of the current post
+
+    /**
+     * Constructs a cursor positioned at the first unseen post of the given ranking.
+     *
+     * @param rankedPosts an iterator over the author's posts in descending order
+     * @param viewer      the user whose seen posts are skipped
+     */
+    PostCursor(Iterator<Post> rankedPosts, User viewer) {
+        this(rankedPosts, viewer, null);
+    }
+
+    /**
+     * Constructs a cursor positioned at the first post of the given ranking that is neither
+     * seen by the viewer nor among the skipped posts.
+     *
+     * @param rankedPosts an iterator over the author's posts in descending order
+     * @param viewer      the user whose seen posts are skipped
+     * @param skipped     the indexes of further posts to skip, or {@code null} for none
+     */
+    PostCursor(Iterator<Post> rankedPosts, User viewer, RoaringBitmap skipped) {
+        this.rankedPosts = rankedPosts;
+        this.viewer = viewer;
+        this.skipped = skipped;
+        this.store = viewer.getPostStore();
+        advance();
+    }
+
+    /**
+     * Moves the cursor to the next post that the viewer has not seen and that is not skipped.
+     *
+     * @return {@code true} if such a post exists, {@code false} if the cursor is exhausted
+     */
+    boolean advance() {
+        while (rankedPosts.hasNext()) {
+            Post post = rankedPosts.next();
+            int index = post.getIndex();
+            if (!viewer.hasSeen(post) && (skipped == null || !skipped.contains(index))) {
+                current = post;
+                currentKey = store.sortKey(index);
+                currentIdKey = store.idKey(index);
+                return true;
+            }
+        }
+        current = null;
+        return false;
+    }
+
+    /**
+     * Retrieves the post the cursor currently points to.
+     *
+     * @return the current post, or {@code null} if the cursor is exhausted
+     */
+    Post current() {
+        return current;
+    }
+
+    /**
+     * Retrieves the sort key of the current post. Cursors with different keys are ordered by
+     * their keys; cursors with equal keys must be ordered with {@link #compareTies(PostCursor)}.
+     *
+     * @return the sort key of the current post
+     */
+    long key() {
+        return currentKey;
+    }
+
+    /**
+     * Compares two cursors whose current posts have equal sort keys, by their abbreviated IDs
+     * and, when those are equal too, by their full IDs. Equal keys never decide the order on
+     * their own, since IDs that differ only after a clamped character share their keys.
+     *
+     * @param o the other cursor to compare to
+     * @return the result of comparing the current posts
+     */
+    int compareTies(PostCursor o) {
+        int order = Long.compareUnsigned(currentIdKey, o.currentIdKey);
+        return order != 0 ? order : current.getPostID().compareTo(o.current.getPostID());
+    }
+
+    /**
+     * Compares two cursors by their current posts, in the order of {@link Post#compareTo(Post)}.
+     *
+     * @param o the other cursor to compare to
+     * @return the result of comparing the current posts
+     */
+    @Override
+    public int compareTo(PostCursor o) {
+        if (currentKey != o.currentKey) {
+            return currentKey > o.currentKey ? 1 : -1;
+        }
+        return compareTies(o);
+    }
+}
@@ -0,0 +1,183 @@
+package models;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * The ranking keys of every post attached to an author, stored column by column in primitive
+ * arrays indexed by the dense id of the post: a sort key holding the like count, an
+ * abbreviated key of the post ID, the dense id of the author and the position among the
+ * author's posts. Comparing posts by likes and ID, and checking whether a viewer has seen a
+ * post, read these columns instead of dereferencing a {@link Post} and its ID strings, and
+ * neighbouring posts share cache lines.
+ * <p>
+ * The abbreviated key packs the first eight characters of a post ID into a long, one byte per
+ * character, and pads shorter IDs with zeros. A character of 0xFF or above does not fit in a
+ * byte, so it ends the key: its byte and every byte after it are 0xFF, and two IDs that share
+ * the characters before it get equal keys whatever follows. Compared unsigned, a smaller key
+ * therefore means a smaller ID, and the strings only need to be compared when the keys are
+ * equal. The sort key holds the like count in its upper 32 bits and the upper half of
+ * the abbreviated key in its lower 32 bits. Wherever two sort keys differ, a single signed
+ * comparison orders the posts exactly as {@link Post#compareTo(Post)} does; equal sort keys
+ * say nothing about the order and must fall back to the abbreviated keys and then to the IDs.
+ * The sort key is refreshed whenever the likes change by adding to its upper half.
+ * <p>
+ * The columns are split into fixed-size pages that never move, so growing the store only
+ * copies the page directories and never loses a concurrent update. Posts must be attached while
+ * holding the monitor of the post dictionary, and the likes of a post must only change while
+ * its author is held, as for its ranked posts.
+ */
+final class PostStore {
+    private static final int PAGE_BITS = 12; // Posts per page, as a power of two
+    private static final int PAGE_MASK = (1 << PAGE_BITS) - 1; // Offset of a post within its page
+    private static final int KEY_CHARS = 8; // Characters of an ID packed into its abbreviated key
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class); // Atomic access to the sort keys
+
+    private volatile long[][] sortKeys = new long[0][]; // Like count and upper abbreviated ID of each post, by page
+    private volatile long[][] idKeys = new long[0][]; // Abbreviated post ID of each post, by page
+    private volatile int[][] authors = new int[0][]; // Dense id of the author of each post, by page
+    private volatile int[][] sequences = new int[0][]; // Position of each post among its author's posts, by page
+
+    /**
+     * Records the ranking keys of a post when it is attached to its author.
+     *
+     * @param index    the dense id of the post
+     * @param postID   the ID of the post
+     * @param likes    the like count of the post
+     * @param author   the dense id of the author
+     * @param sequence the position of the post among its author's posts
+     */
+    void attach(int index, String postID, int likes, int author, int sequence) {
+        int page = index >>> PAGE_BITS;
+        if (page >= sortKeys.length) {
+            addPages(page + 1);
+        }
+        int offset = index & PAGE_MASK;
+        long idKey = abbreviate(postID);
+        idKeys[page][offset] = idKey;
+        authors[page][offset] = author;
+        sequences[page][offset] = sequence;
+        // Publishes the other columns along with it
+        LONGS.setVolatile(sortKeys[page], offset, (long) likes << 32 | idKey >>> 32);
+    }
+
+    /**
+     * Grows the page directories, filling the new pages before publishing them.
+     *
+     * @param pageCount the number of pages needed
+     */
+    private void addPages(int pageCount) {
+        int count = Math.max(pageCount, 2 * sortKeys.length);
+        long[][] newSortKeys = Arrays.copyOf(sortKeys, count);
+        long[][] newIdKeys = Arrays.copyOf(idKeys, count);
+        int[][] newAuthors = Arrays.copyOf(authors, count);
+        int[][] newSequences = Arrays.copyOf(sequences, count);
+        for (int page = sortKeys.length; page < count; page++) {
+            newSortKeys[page] = new long[1 << PAGE_BITS];
+            newIdKeys[page] = new long[1 << PAGE_BITS];
+            newAuthors[page] = new int[1 << PAGE_BITS];
+            newSequences[page] = new int[1 << PAGE_BITS];
+        }
+        idKeys = newIdKeys;
+        authors = newAuthors;
+        sequences = newSequences;
+        sortKeys = newSortKeys;
+    }
+
+    /**
+     * Packs the first characters of a post ID into a key whose unsigned order agrees with the
+     * order of the IDs wherever the keys differ. Packing stops at the first character that does
+     * not fit in a byte below 0xFF, filling the rest of the key with 0xFF.
+     *
+     * @param postID the ID of the post
+     * @return the abbreviated key
+     */
+    static long abbreviate(String postID) {
+        long key = 0;
+        boolean clamped = false; // Whether a character has been clamped, ending the packed prefix
+        for (int i = 0; i < KEY_CHARS; i++) {
+            int c = clamped ? 0xFF : i < postID.length() ? postID.charAt(i) : 0;
+            if (c >= 0xFF) {
+                // Later characters must not order IDs that only agree up to a clamped character
+                c = 0xFF;
+                clamped = true;
+            }
+            key = key << 8 | c;
+        }
+        return key;
+    }
+
+    /**
+     * Retrieves the like count of a post.
+     *
+     * @param index the dense id of the post
+     * @return the like count
+     */
+    int likes(int index) {
+        return (int) (sortKey(index) >> 32);
+    }
+
+    /**
+     * Retrieves the sort key of a post: its like count in the upper 32 bits and the upper half
+     * of its abbreviated ID in the lower 32 bits.
+     *
+     * @param index the dense id of the post
+     * @return the sort key, ordered like the post wherever two keys differ
+     */
+    long sortKey(int index) {
+        return (long) LONGS.getVolatile(sortKeys[index >>> PAGE_BITS], index & PAGE_MASK);
+    }
+
+    /**
+     * Changes the like count of a post atomically.
+     *
+     * @param index the dense id of the post
+     * @param delta the amount to add to the like count
+     */
+    void addLikes(int index, int delta) {
+        LONGS.getAndAdd(sortKeys[index >>> PAGE_BITS], index & PAGE_MASK, (long) delta << 32); // Leaves the lower half alone
+    }
+
+    /**
+     * Retrieves the abbreviated ID of a post.
+     *
+     * @param index the dense id of the post
+     * @return the abbreviated key
+     */
+    long idKey(int index) {
+        return idKeys[index >>> PAGE_BITS][index & PAGE_MASK];
+    }
+
+    /**
+     * Retrieves the dense id of the author of a post.
+     *
+     * @param index the dense id of the post
+     * @return the dense id of the author
+     */
+    int author(int index) {
+        return authors[index >>> PAGE_BITS][index & PAGE_MASK];
+    }
+
+    /**
+     * Retrieves the position of a post among its author's posts.
+     *
+     * @param index the dense id of the post
+     * @return the position in creation order
+     */
+    int sequence(int index) {
+        return sequences[index >>> PAGE_BITS][index & PAGE_MASK];
+    }
+
+    /**
+     * Compares two posts by sort key and then by abbreviated ID.
+     *
+     * @param first  the dense id of the first post
+     * @param second the dense id of the second post
+     * @return the order of the posts, or 0 if their IDs must be compared in full
+     */
+    int compare(int first, int second) {
+        int order = Long.compare(sortKey(first), sortKey(second));
+        return order != 0 ? order : Long.compareUnsigned(idKey(first), idKey(second));
+    }
+}
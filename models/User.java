@@ -1,38 +1,253 @@
 package models;
 
-import datastructures.HashTable;
-import datastructures.MaxHeap;
+import datastructures.AdjacencyList;
+import datastructures.CompactTable;
+import datastructures.LongMaxHeap;
+import datastructures.RankedTree;
+import datastructures.RoaringBitmap;
+import datastructures.TopKSelector;
+import output.OutputWriter;
+import output.Template;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
 
 /**
  * Represents a user in the system who can create posts, follow other users,
  * interact with posts, and manage his feed.
  */
 public class User {
+    // Precompiled output messages
+    private static final Template CREATE_POST_ERROR = new Template("Some error occurred in create_post.\n");
+    private static final Template CREATED_POST = new Template("%s created a post with Id %s.\n");
+    private static final Template LIKED = new Template("%s liked %s.\n");
+    private static final Template UNLIKED = new Template("%s unliked %s.\n");
+    private static final Template FEED_HEADER = new Template("Feed for %s:\n");
+    private static final Template FEED_POST = new Template("Post ID: %s, Author: %s, Likes: %s\n");
+    private static final Template NO_MORE_POSTS_AVAILABLE = new Template("No more posts available for %s.\n");
+    private static final Template PAGE_HEADER = new Template("Next page for %s:\n");
+    private static final Template SCROLL_HEADER = new Template("%s is scrolling through feed:\n");
+    private static final Template SCROLLED_POST = new Template("%s saw %s while scrolling.\n");
+    private static final Template SCROLLED_AND_LIKED_POST = new Template("%s saw %s while scrolling and clicked the like button.\n");
+    private static final Template NO_MORE_POSTS_IN_FEED = new Template("No more posts in feed.\n");
+    private static final Template SORT_HEADER = new Template("Sorting %s's posts:\n");
+    private static final Template NO_POSTS = new Template("No posts from %s.\n");
+    private static final Template SORTED_POST = new Template("%s, Likes: %s\n");
+
+    private static final LongAdder FEEDS_COLLECTED = new LongAdder(); // Feeds collected by all users, for statistics
+    private static final LongAdder FEED_SOURCES = new LongAdder(); // Cursors merged by those feeds, for statistics
+
+    private static int pushThreshold = -1; // Most followers an author may have and still push posts, negative to always pull
+    private static FeedCache feedCache; // Cache of collected feeds, or null when feeds are always collected
+    private static LikeCoalescer likeCoalescer; // Batches like count changes, or null to apply each at once
+    private static volatile boolean shared; // Whether users are read and changed from several threads
+
     private String userId; // Unique identifier for the user
-    ArrayList<User> followedUsersList; // List of users this user follows
-    ArrayList<Post> posts; // List of posts created by this user
-    HashTable<String, Post> postsTable; // Hash table for quick access to posts by ID
-    HashTable<String, User> followedUsers; // Hash table of followed users
-    HashTable<String, Post> seenPosts; // Hash table of posts seen by this user
-    HashTable<String, Post> likedPosts; // Hash table of posts liked by this user
+    private final int index; // Dense integer id of the user
+    ArrayList<Post> posts; // List of posts created by this user, null while none
+    CompactTable<String, Post> postsTable; // Table for quick access to posts by ID, null while none
+    RoaringBitmap seenPosts; // Indexes of posts seen by this user one by one, null while none
+    AdjacencyList watermarkAuthors; // Dense ids of the users whose posts this user has seen all of, null while none
+    int[] watermarks; // Number of leading posts seen of each user in watermarkAuthors, by position
+    RoaringBitmap likedPosts; // Indexes of posts liked by this user, null while none
+    RankedTree<Post> rankedPosts; // Posts ordered by likes, created with the first post
+    private final FollowGraph graph; // Graph of follows between users
+    AdjacencyList followees; // Dense ids of the users this user follows, null while none
+    AdjacencyList followers; // Dense ids of the users following this user, null while none
+    AdjacencyList pulledUsers; // Followed users whose posts are pulled on read in push mode, null while none
+    RankedTree<Post> inbox; // Unseen posts pushed by followed users, ordered by likes, null while none
+    boolean pullOnly; // Whether this user has had too many followers to push its posts
+    FeedCache.Entry cachedFeed; // This user's cached feed, or null while none
+    FeedPager pager; // Position of this user's paging through its feed, or null while not paging
+    long feedVersion; // Bumped whenever this user's follows, seen posts or inbox change
+    private long postsVersion; // Bumped whenever this user's posts or their likes change
 
     /**
-     * Constructs a new User with the specified user ID.
+     * Constructs a new User with the specified user ID. Most users never post and follow only
+     * a few others, so every collection is allocated on first use and a user who has done
+     * nothing holds no collection at all.
      *
      * @param userID the unique identifier of the user
+     * @param index  the dense integer id of the user
+     * @param graph  the graph recording the user's follows
      */
-    public User(String userID) {
+    public User(String userID, int index, FollowGraph graph) {
         this.userId = userID;
-        this.posts = new ArrayList<>();
-        this.postsTable = new HashTable<>();
-        this.followedUsersList = new ArrayList<>();
-        this.followedUsers = new HashTable<>();
-        this.seenPosts = new HashTable<>();
-        this.likedPosts = new HashTable<>();
+        this.index = index;
+        this.graph = graph;
+    }
+
+    /**
+     * Enables push mode for feeds. An author with at most {@code threshold} followers pushes
+     * each new post into the inbox of every follower, so reading a feed only merges the inbox
+     * with the posts of the few followed authors that have more followers. Once an author
+     * exceeds the threshold it stays pull-based, so a popular author never flips back and forth.
+     * Must be called before any user is created, and only when commands run on a single thread.
+     *
+     * @param threshold the largest follower count of a pushing author, or a negative value to always pull
+     * @throws IllegalStateException if push mode is enabled after users were shared between threads
+     */
+    public static void setPushThreshold(int threshold) {
+        if (shared && threshold >= 0) {
+            throw new IllegalStateException("Push mode cannot be enabled while users are shared between threads");
+        }
+        pushThreshold = threshold;
+    }
+
+    /**
+     * Declares that users will be read and changed from several threads. Pushing a post or a
+     * like changes the inbox of every follower while only the author is locked, and the feed
+     * cache and the like coalescer are unsynchronized and shared by all users, so push mode,
+     * the cache and like batching must be off and cannot be enabled afterwards.
+     *
+     * @throws IllegalStateException if push mode is enabled, feeds are cached or likes are batched
+     */
+    public static void shareBetweenThreads() {
+        if (pushThreshold >= 0) {
+            throw new IllegalStateException("Users cannot be shared between threads in push mode");
+        }
+        if (feedCache != null) {
+            throw new IllegalStateException("Users cannot be shared between threads while feeds are cached");
+        }
+        if (likeCoalescer != null) {
+            throw new IllegalStateException("Users cannot be shared between threads while likes are batched");
+        }
+        shared = true;
+    }
+
+    /**
+     * Enables caching of collected feeds. Must be called before any user is created, and only
+     * when commands run on a single thread.
+     *
+     * @param cache the cache to keep feeds in, or {@code null} to always collect them
+     * @throws IllegalStateException if a cache is set after users were shared between threads
+     */
+    public static void setFeedCache(FeedCache cache) {
+        if (shared && cache != null) {
+            throw new IllegalStateException("Feeds cannot be cached while users are shared between threads");
+        }
+        feedCache = cache;
+    }
+
+    /**
+     * Retrieves the cache of collected feeds.
+     *
+     * @return the cache, or {@code null} if feeds are not cached
+     */
+    public static FeedCache getFeedCache() {
+        return feedCache;
+    }
+
+    /**
+     * Enables batching of like count changes. Must be called before any command runs, and only
+     * when commands run on a single thread.
+     *
+     * @param coalescer the coalescer collecting the changes, or {@code null} to apply each at once
+     * @throws IllegalStateException if a coalescer is set after users were shared between threads
+     */
+    public static void setLikeCoalescer(LikeCoalescer coalescer) {
+        if (shared && coalescer != null) {
+            throw new IllegalStateException("Likes cannot be batched while users are shared between threads");
+        }
+        likeCoalescer = coalescer;
+    }
+
+    /**
+     * Retrieves the coalescer batching like count changes.
+     *
+     * @return the coalescer, or {@code null} if each change is applied at once
+     */
+    public static LikeCoalescer getLikeCoalescer() {
+        return likeCoalescer;
+    }
+
+    /**
+     * Changes the like count of a post, through the like coalescer if there is one.
+     *
+     * @param post  the post liked or unliked
+     * @param delta 1 for a like, -1 for an unlike
+     */
+    private static void changeLikes(Post post, int delta) {
+        if (likeCoalescer != null) {
+            likeCoalescer.add(post, delta);
+        } else if (delta > 0) {
+            post.like();
+        } else {
+            post.unlike();
+        }
+    }
+
+    /**
+     * Records a change to this user's follows, seen posts or inbox, which invalidates its
+     * cached feed and its paging position.
+     */
+    private void touchFeed() {
+        feedVersion++;
+    }
+
+    /**
+     * Records a change to this user's posts or their likes, which invalidates the cached feeds
+     * and paging positions of its followers.
+     */
+    void touchPosts() {
+        postsVersion++;
+    }
+
+    /**
+     * Sums the post versions of the followed users. Versions only grow and the followed users
+     * cannot change without bumping {@link #feedVersion}, so while that version is unchanged an
+     * unchanged sum means that no followed user's posts have changed.
+     *
+     * @return the sum of the followed users' post versions
+     */
+    long feedSourcesVersion() {
+        long version = 0;
+        int followeeCount = followees == null ? 0 : followees.size();
+        for (int i = 0; i < followeeCount; i++) {
+            version += graph.userAt(followees.get(i)).postsVersion;
+        }
+        return version;
+    }
+
+    /**
+     * Retrieves the store holding the like counts and ranking keys of the posts of this user's model.
+     *
+     * @return the post store
+     */
+    PostStore getPostStore() {
+        return graph.getPostStore();
+    }
+
+    /**
+     * Retrieves the number of feeds collected by all users, for generate_feed and scroll_through_feed alike.
+     *
+     * @return the feed count
+     */
+    public static long getFeedsCollected() {
+        return FEEDS_COLLECTED.sum();
+    }
+
+    /**
+     * Retrieves the number of candidate sources, followed users with unseen posts and inboxes,
+     * merged by all collected feeds.
+     *
+     * @return the total source count
+     */
+    public static long getFeedSources() {
+        return FEED_SOURCES.sum();
+    }
+
+    /**
+     * Checks whether this user's posts are pushed into its followers' inboxes.
+     *
+     * @return {@code true} in push mode while the user has not exceeded the threshold
+     */
+    boolean pushesPosts() {
+        return pushThreshold >= 0 && !pullOnly;
     }
 
     /**
@@ -42,9 +257,12 @@ public class User {
      * @return {@code true} if the user was successfully followed, {@code false} otherwise
      */
     public boolean follow(User user) {
-        // Add the user to the followed hash table and list if not already followed
-        if (followedUsers.put(user.getUserId(), user)) {
-            followedUsersList.add(user);
+        // Add the edge to the follow graph if not already followed
+        if (graph.addEdge(this, user)) {
+            touchFeed();
+            if (pushThreshold >= 0) {
+                user.addFollower(this);
+            }
             return true; // Successfully followed
         }
         return false; // Already following
@@ -57,14 +275,119 @@ public class User {
      * @return {@code true} if the user was successfully unfollowed, {@code false} otherwise
      */
     public boolean unfollow(User user) {
-        // Remove the user from the followed hash table and list if present
-        if (followedUsers.remove(user.getUserId())) {
-            followedUsersList.remove(user);
+        // Remove the edge from the follow graph if present
+        if (graph.removeEdge(this, user)) {
+            touchFeed();
+            if (pushThreshold >= 0) {
+                user.removeFollower(this);
+            }
             return true; // Successfully unfollowed
         }
         return false; // User was not followed
     }
 
+    /**
+     * Reacts to a new follower in push mode. The follower's inbox is backfilled with the posts
+     * it has not seen, unless the new follower pushes this user over the threshold, in which
+     * case every follower's inbox is purged and the posts are pulled from now on.
+     *
+     * @param follower the user who started following this user
+     */
+    private void addFollower(User follower) {
+        if (pullOnly) {
+            follower.addPulledUser(this);
+        } else if (followers.size() > pushThreshold) {
+            pullOnly = true;
+            for (int i = 0; i < followers.size(); i++) {
+                User user = graph.userAt(followers.get(i));
+                user.purgeInbox(posts);
+                user.addPulledUser(this);
+            }
+        } else if (posts != null) {
+            for (Post post : posts) {
+                follower.pushToInbox(post);
+            }
+        }
+    }
+
+    /**
+     * Reacts to a lost follower in push mode by removing this user's posts from its feed sources.
+     *
+     * @param follower the user who stopped following this user
+     */
+    private void removeFollower(User follower) {
+        if (pullOnly) {
+            follower.pulledUsers.remove(index);
+        } else {
+            follower.purgeInbox(posts);
+        }
+    }
+
+    /**
+     * Adds a followed user whose posts are pulled when the feed is read.
+     *
+     * @param user the followed user
+     */
+    private void addPulledUser(User user) {
+        if (pulledUsers == null) {
+            pulledUsers = new AdjacencyList();
+        }
+        pulledUsers.add(user.getIndex());
+        touchFeed();
+    }
+
+    /**
+     * Adds a post of a followed user to the inbox unless it has been seen.
+     *
+     * @param post the pushed post
+     */
+    private void pushToInbox(Post post) {
+        if (hasSeen(post)) {
+            return;
+        }
+        if (inbox == null) {
+            inbox = new RankedTree<>();
+        }
+        inbox.insert(post);
+        touchFeed();
+    }
+
+    /**
+     * Removes posts of a followed user from the inbox.
+     *
+     * @param posts the posts to remove, or {@code null} for none; posts not in the inbox are ignored
+     */
+    private void purgeInbox(ArrayList<Post> posts) {
+        if (inbox == null || posts == null) {
+            return;
+        }
+        for (Post post : posts) {
+            inbox.remove(post);
+        }
+        touchFeed();
+    }
+
+    /**
+     * Removes one of this user's posts from its followers' inboxes before the post's like count
+     * changes, since the inboxes are ordered by likes.
+     *
+     * @param post the post whose likes are about to change
+     * @return the inboxes the post was removed from and must be put back into, or {@code null} if none
+     */
+    ArrayList<RankedTree<Post>> detachFromInboxes(Post post) {
+        if (!pushesPosts() || followers == null || followers.size() == 0) {
+            return null;
+        }
+        ArrayList<RankedTree<Post>> inboxes = new ArrayList<>();
+        for (int i = 0; i < followers.size(); i++) {
+            User follower = graph.userAt(followers.get(i));
+            if (follower.inbox != null && follower.inbox.remove(post)) {
+                inboxes.add(follower.inbox);
+            }
+        }
+        return inboxes;
+    }
+
     /**
      * Creates a new post and writes the expected output to a file.
      *
@@ -72,15 +395,104 @@ public class User {
      * @param writer the writer used for logging output
      * @throws IOException if an I/O error occurs
      */
-    public void createPost(Post post, BufferedWriter writer) throws IOException {
+    public void createPost(Post post, OutputWriter writer) throws IOException {
+        if (postsTable == null) {
+            allocatePosts();
+        }
         // Check if the post ID already exists in the hash table via trying to insert the post to the hash table
         boolean isAlreadyExisting = !postsTable.put(post.getPostID(), post);
         if (isAlreadyExisting) {
-            writer.write("Some error occurred in create_post.\n"); // Log error if post already exists
+            CREATE_POST_ERROR.write(writer); // Log error if post already exists
         } else {
+            post.attach(this, graph.getPostStore(), posts.size());
             posts.add(post);
-            writer.write(String.format("%s created a post with Id %s.\n", this.userId, post.getPostID()));
+            rankedPosts.insert(post);
+            touchPosts();
+            if (pushesPosts() && followers != null) {
+                for (int i = 0; i < followers.size(); i++) {
+                    graph.userAt(followers.get(i)).pushToInbox(post);
+                }
+            }
+            CREATED_POST.write(writer, this.userId, post.getPostID());
+        }
+    }
+
+    /**
+     * Adds a post restored from a snapshot without writing output. Posts must be restored
+     * before any follower, so push-mode inboxes are filled when the follows are restored.
+     *
+     * @param post the restored post
+     */
+    public void restorePost(Post post) {
+        if (postsTable == null) {
+            allocatePosts();
         }
+        postsTable.put(post.getPostID(), post);
+        post.attach(this, graph.getPostStore(), posts.size());
+        posts.add(post);
+        rankedPosts.insert(post);
+        touchPosts();
+    }
+
+    /**
+     * Allocates the collections holding this user's posts with its first post.
+     */
+    private void allocatePosts() {
+        posts = new ArrayList<>();
+        postsTable = new CompactTable<>();
+        rankedPosts = new RankedTree<>();
+    }
+
+    /**
+     * Restores the seen and liked state of a post from a snapshot without changing its likes.
+     *
+     * @param postIndex the dense id of the post
+     * @param liked     whether the user likes the post
+     */
+    public void restoreSeenPost(int postIndex, boolean liked) {
+        markSeen(postIndex);
+        touchFeed();
+        if (liked) {
+            markLiked(postIndex);
+        }
+    }
+
+    /**
+     * Adds a post to the posts seen one by one, creating the set on first use.
+     *
+     * @param postIndex the dense id of the post
+     * @return {@code true} if the post was not marked seen before
+     */
+    private boolean markSeen(int postIndex) {
+        if (seenPosts == null) {
+            seenPosts = new RoaringBitmap();
+        }
+        return seenPosts.add(postIndex);
+    }
+
+    /**
+     * Adds a post to the liked posts, creating the set on first use.
+     *
+     * @param postIndex the dense id of the post
+     * @return {@code true} if the post was not liked before
+     */
+    private boolean markLiked(int postIndex) {
+        if (likedPosts == null) {
+            likedPosts = new RoaringBitmap();
+        }
+        return likedPosts.add(postIndex);
+    }
+
+    /**
+     * Restores a watermark from a snapshot: every post of the author up to the given count is
+     * seen. Must be called before the user's follows are restored.
+     *
+     * @param author the user whose posts were seen
+     * @param count  the number of the author's leading posts seen
+     */
+    public void restoreWatermark(User author, int count) {
+        raiseWatermark(author, count);
+        touchFeed();
     }
 
     /**
@@ -89,7 +501,15 @@ public class User {
      * @param post the post to mark as seen
      */
     public void seePost(Post post) {
-        seenPosts.put(post.getPostID(), post);
+        if (isBelowWatermark(post)) {
+            return; // Already seen along with the rest of its author's posts
+        }
+        if (markSeen(post.getIndex())) {
+            touchFeed();
+            if (inbox != null) {
+                inbox.remove(post); // Seen posts never reappear in the feed
+            }
+        }
     }
 
     /**
@@ -99,29 +519,186 @@ public class User {
      * @param writer the writer used for logging output
      * @throws IOException if an I/O error occurs
      */
-    public void likePost(Post post, BufferedWriter writer) throws IOException {
+    public void likePost(Post post, OutputWriter writer) throws IOException {
         // Check if the post is already liked
-        if (this.likedPosts.put(post.getPostID(), post)) {
-            post.like();
+        if (markLiked(post.getIndex())) {
+            changeLikes(post, 1);
             this.seePost(post); // Mark the post as seen
-            writer.write(String.format("%s liked %s.\n", this.userId, post.getPostID()));
+            LIKED.write(writer, this.userId, post.getPostID());
         } else {
-            post.unlike();
-            this.likedPosts.remove(post.getPostID());
-            writer.write(String.format("%s unliked %s.\n", this.userId, post.getPostID()));
+            changeLikes(post, -1);
+            this.likedPosts.remove(post.getIndex());
+            UNLIKED.write(writer, this.userId, post.getPostID());
         }
     }
 
     /**
-     * Marks all posts of another user's as seen by the user.
+     * Marks all posts of another user as seen by the user. An author's posts are kept in
+     * creation order, so instead of marking every post the user raises a watermark for the
+     * author below which all posts count as seen; posts created later lie above it. Posts
+     * seen one by one above the watermark stay marked individually.
      *
-     * @param posts the list of posts to mark as seen
+     * @param author the user whose posts are seen
      */
-    public void seeAllPosts(ArrayList<Post> posts) {
-        // Add each post to the seen posts hash table
-        for (Post post : posts) {
-            seenPosts.put(post.getPostID(), post);
+    public void seeAllPosts(User author) {
+        int count = author.getPostCount();
+        int previous = raiseWatermark(author, count);
+        if (previous >= count) {
+            return; // No post was created since the author's posts were last seen
+        }
+        touchFeed();
+        if (inbox != null) {
+            for (int i = previous; i < count; i++) {
+                inbox.remove(author.posts.get(i)); // Seen posts never reappear in the feed
+            }
+        }
+    }
+
+    /**
+     * Raises the watermark of an author, creating it on first use.
+     *
+     * @param author the user whose posts were seen
+     * @param count  the number of the author's leading posts seen
+     * @return the previous watermark, 0 if there was none; the watermark is unchanged if it was not lower
+     */
+    private int raiseWatermark(User author, int count) {
+        int position = watermarkAuthors == null ? -1 : watermarkAuthors.indexOf(author.index);
+        int previous = position < 0 ? 0 : watermarks[position];
+        if (count <= previous) {
+            return previous;
         }
+        if (position < 0) {
+            if (watermarkAuthors == null) {
+                watermarkAuthors = new AdjacencyList();
+                watermarks = new int[4];
+            }
+            watermarkAuthors.add(author.index);
+            position = watermarkAuthors.size() - 1; // Ids are appended and never removed
+            if (position == watermarks.length) {
+                watermarks = Arrays.copyOf(watermarks, 2 * position);
+            }
+        }
+        watermarks[position] = count;
+        return previous;
+    }
+
+    /**
+     * Checks whether a post lies below the watermark of its author.
+     *
+     * @param post the post to check
+     * @return {@code true} if the post was seen along with the rest of its author's posts
+     */
+    private boolean isBelowWatermark(Post post) {
+        if (watermarkAuthors == null) {
+            return false;
+        }
+        PostStore store = graph.getPostStore();
+        int position = watermarkAuthors.indexOf(store.author(post.getIndex()));
+        return position >= 0 && store.sequence(post.getIndex()) < watermarks[position];
+    }
+
+    /**
+     * Checks whether the user has seen a post, testing the author's watermark before the
+     * posts seen one by one.
+     *
+     * @param post the post to check
+     * @return {@code true} if the post was seen, {@code false} otherwise
+     */
+    boolean hasSeen(Post post) {
+        return isBelowWatermark(post) || (seenPosts != null && seenPosts.contains(post.getIndex()));
+    }
+
+    /**
+     * Collects the highest ranked posts of followed users that this user has not seen yet.
+     * Each followed user's posts are already ranked, so the posts are produced by a k-way merge
+     * over one cursor per followed user instead of heapifying every candidate post. In push
+     * mode the inbox already holds the posts of most followed users, so only the inbox and the
+     * followed users that exceeded the push threshold are merged.
+     * <p>
+     * A source whose best unseen post is beaten by the best unseen posts of {@code limit} other
+     * sources cannot contribute to the feed, so when there are more sources than posts wanted
+     * only the {@code limit} best are selected before the merge heap is built. The heap ranks
+     * the cursors by the primitive sort keys of their posts and only compares the cursors
+     * themselves when two keys are equal.
+     * <p>
+     * When feeds are cached, a cached feed that is still valid is returned instead, and a
+     * collected feed is cached if requested.
+     *
+     * @param limit the maximum number of posts to collect
+     * @param store whether to cache the collected feed; not worth it when the caller marks the posts seen
+     * @return the collected posts in descending order, which must not be modified
+     */
+    private ArrayList<Post> collectFeed(int limit, boolean store) {
+        ArrayList<Post> feed = new ArrayList<>();
+        if (limit <= 0) {
+            return feed;
+        }
+        if (feedCache != null) {
+            ArrayList<Post> cached = feedCache.get(this, limit);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        ArrayList<PostCursor> candidates = feedSources(null); // Cursors of sources with unseen posts
+        FEEDS_COLLECTED.increment();
+        FEED_SOURCES.add(candidates.size());
+        if (candidates.size() > limit) {
+            TopKSelector<PostCursor> best = new TopKSelector<>(limit);
+            for (PostCursor cursor : candidates) {
+                best.offer(cursor);
+            }
+            candidates = best.drainDescending();
+        }
+        PostCursor[] sources = candidates.toArray(new PostCursor[0]); // Cursors by their position in the heap values
+        LongMaxHeap cursors = new LongMaxHeap(sources.length, (a, b) -> sources[a].compareTies(sources[b]));
+        for (int i = 0; i < sources.length; i++) {
+            cursors.append(sources[i].key(), i);
+        }
+        cursors.heapify(); // Built in linear time
+        while (feed.size() < limit && !cursors.isEmpty()) {
+            int source = cursors.peekValue(); // The cursor holding the highest ranked post
+            PostCursor cursor = sources[source];
+            feed.add(cursor.current());
+            if (cursor.advance()) {
+                cursors.replaceMax(cursor.key(), source); // Sift the cursor down with its next unseen post
+            } else {
+                cursors.deleteMax();
+            }
+        }
+        if (feedCache != null && store) {
+            feedCache.put(this, feed, limit);
+        }
+        return feed;
+    }
+
+    /**
+     * Opens a cursor over every source of this user's feed that has posts left: the inbox in
+     * push mode and each followed user whose posts are pulled.
+     *
+     * @param skipped the indexes of posts to skip besides the seen ones, or {@code null} for none
+     * @return the cursors, each positioned at its source's highest ranked post left
+     */
+    ArrayList<PostCursor> feedSources(RoaringBitmap skipped) {
+        AdjacencyList sources = pushThreshold < 0 ? followees : pulledUsers; // Users whose posts are pulled
+        int sourceCount = sources == null ? 0 : sources.size();
+        ArrayList<PostCursor> cursors = new ArrayList<>(sourceCount + 1);
+        if (inbox != null && !inbox.isEmpty()) {
+            PostCursor cursor = new PostCursor(inbox.descendingIterator(), this, skipped);
+            if (cursor.current() != null) {
+                cursors.add(cursor);
+            }
+        }
+        for (int i = 0; i < sourceCount; i++) {
+            User user = graph.userAt(sources.get(i));
+            if (user.rankedPosts == null) {
+                continue; // Users who never posted have nothing to merge
+            }
+            PostCursor cursor = new PostCursor(user.rankedPosts.descendingIterator(), this, skipped);
+            if (cursor.current() != null) {
+                cursors.add(cursor); // Skip users without unseen posts
+            }
+        }
+        return cursors;
     }
 
     /**
@@ -131,59 +708,71 @@ public class User {
      * @param writer   the writer used for logging output
      * @throws IOException if an I/O error occurs
      */
-    public void generateFeed(int feedSize, BufferedWriter writer) throws IOException {
-        MaxHeap<Post> posts = new MaxHeap<>(10); // MaxHeap to sort posts by likes
-        for (User user : this.followedUsersList) {
-            for (Post post : user.getPosts()) {
-                if (!seenPosts.containsKey(post.getPostID())) {
-                    posts.insert(post); // Add unseen posts to the heap
-                }
-            }
-        }
-        writer.write(String.format("Feed for %s:\n", this.userId));
-        while (feedSize > 0 && !posts.isEmpty()) {
-            Post post = posts.deleteMax(); // Get the next post with the highest likes
-            writer.write(String.format("Post ID: %s, Author: %s, Likes: %s\n", post.getPostID(), post.getAuthor(), post.getLikes()));
+    public void generateFeed(int feedSize, OutputWriter writer) throws IOException {
+        ArrayList<Post> posts = collectFeed(feedSize, true); // Posts with the highest likes
+        FEED_HEADER.write(writer, this.userId);
+        for (Post post : posts) {
+            FEED_POST.write(writer, post.getPostID(), post.getAuthor(), post.getLikes());
             feedSize--;
         }
         if (feedSize != 0) {
-            writer.write(String.format("No more posts available for %s.\n", this.userId)); // Log if fewer posts are available
+            NO_MORE_POSTS_AVAILABLE.write(writer, this.userId); // Log if fewer posts are available
         }
     }
 
     /**
-     * Simulates scrolling through a feed and processes user actions.
+     * Writes the next posts of the feed, resuming where the previous page of this user ended.
+     * Paging does not mark posts as seen, but a post is returned at most once until the feed
+     * is exhausted, after which paging starts over from the top.
      *
-     * @param postCommands an array of commands representing user actions on posts
-     * @param writer       the writer used for logging output
+     * @param pageSize the maximum number of posts to include in the page
+     * @param writer   the writer used for logging output
      * @throws IOException if an I/O error occurs
      */
-    public void scrollThroughFeed(String[] postCommands, BufferedWriter writer) throws IOException {
-        MaxHeap<Post> posts = new MaxHeap<>(10); // MaxHeap for unseen posts
-        for (User user : this.followedUsersList) {
-            for (Post post : user.getPosts()) {
-                if (!seenPosts.containsKey(post.getPostID())) {
-                    posts.insert(post); // Add unseen posts to the heap
-                }
-            }
+    public void nextPage(int pageSize, OutputWriter writer) throws IOException {
+        if (pager == null) {
+            pager = new FeedPager();
+        }
+        ArrayList<Post> posts = pager.nextPage(this, pageSize);
+        PAGE_HEADER.write(writer, this.userId);
+        for (Post post : posts) {
+            FEED_POST.write(writer, post.getPostID(), post.getAuthor(), post.getLikes());
+        }
+        if (posts.size() < pageSize) {
+            pager = null; // Exhausted, so the next page starts over
+            NO_MORE_POSTS_AVAILABLE.write(writer, this.userId);
         }
-        writer.write(String.format("%s is scrolling through feed:\n", this.userId));
+    }
+
+    /**
+     * Simulates scrolling through a feed and processes user actions.
+     *
+     * @param feedSize  the number of posts the user intends to scroll through
+     * @param likeFlags for each scrolled post, whether the user clicks the like button
+     * @param flagCount the number of valid entries in {@code likeFlags}
+     * @param writer    the writer used for logging output
+     * @throws IOException if an I/O error occurs
+     */
+    public void scrollThroughFeed(int feedSize, boolean[] likeFlags, int flagCount, OutputWriter writer) throws IOException {
+        // The feed is collected before any post is liked, so likes given while scrolling do not reorder it
+        ArrayList<Post> posts = collectFeed(flagCount, false);
+        SCROLL_HEADER.write(writer, this.userId);
         int scrolledPostCount = 0;
-        for (int i = 3; i < postCommands.length && !posts.isEmpty(); i++) {
-            Post post = posts.deleteMax(); // Get the next post with the highest likes
+        for (Post post : posts) {
+            boolean liked = likeFlags[scrolledPostCount];
             scrolledPostCount++;
-            if (postCommands[i].equals("0")) {
-                writer.write(String.format("%s saw %s while scrolling.\n", this.userId, post.getPostID()));
-                seenPosts.put(post.getPostID(), post); // Mark as seen
+            if (!liked) {
+                SCROLLED_POST.write(writer, this.userId, post.getPostID());
+                seePost(post); // Mark as seen
             } else {
-                writer.write(String.format("%s saw %s while scrolling and clicked the like button.\n", this.userId, post.getPostID()));
-                seenPosts.put(post.getPostID(), post);
-                likedPosts.put(post.getPostID(), post);
-                post.like();
+                SCROLLED_AND_LIKED_POST.write(writer, this.userId, post.getPostID());
+                seePost(post);
+                markLiked(post.getIndex());
+                changeLikes(post, 1);
             }
         }
-        if (scrolledPostCount != Integer.parseInt(postCommands[2])) {
-            writer.write("No more posts in feed.\n"); // Log if fewer posts are available
+        if (scrolledPostCount != feedSize) {
+            NO_MORE_POSTS_IN_FEED.write(writer); // Log if fewer posts are available
         }
     }
 
@@ -193,29 +782,146 @@ public class User {
      * @param writer the writer used for logging output
      * @throws IOException if an I/O error occurs
      */
-    public void sortPosts(BufferedWriter writer) throws IOException {
-        writer.write(String.format("Sorting %s's posts:\n", this.userId));
-        MaxHeap<Post> postsHeap = new MaxHeap<>(10); // MaxHeap for sorting
-        if (this.posts.isEmpty()) {
-            writer.write(String.format("No posts from %s.\n", this.userId)); // Log if no posts exist
+    public void sortPosts(OutputWriter writer) throws IOException {
+        SORT_HEADER.write(writer, this.userId);
+        if (this.posts == null) {
+            NO_POSTS.write(writer, this.userId); // Log if no posts exist
             return;
         }
-        for (Post post : this.posts) {
-            postsHeap.insert(post); // Add all posts to the heap
+        // The ranked posts are already in order, so sorting is a single traversal
+        Iterator<Post> iterator = rankedPosts.descendingIterator();
+        while (iterator.hasNext()) {
+            Post post = iterator.next();
+            SORTED_POST.write(writer, post.getPostID(), post.getLikes());
         }
-        while (!postsHeap.isEmpty()) {
-            Post post = postsHeap.deleteMax(); // Get the post with the highest likes
-            writer.write(String.format("%s, Likes: %s\n", post.getPostID(), post.getLikes()));
+    }
+
+    /**
+     * Retrieves the number of posts created by the user.
+     *
+     * @return the number of posts
+     */
+    public int getPostCount() {
+        return posts == null ? 0 : posts.size();
+    }
+
+    /**
+     * Retrieves the number of users this user follows.
+     *
+     * @return the number of followed users
+     */
+    public int getFolloweeCount() {
+        return followees == null ? 0 : followees.size();
+    }
+
+    /**
+     * Retrieves the dense id of a followed user by its position, for scans over all followed users.
+     *
+     * @param position the position, between 0 and the followee count
+     * @return the dense id of the followed user
+     */
+    public int getFolloweeIndex(int position) {
+        return followees.get(position);
+    }
+
+    /**
+     * Retrieves the indexes of the posts this user has seen one by one, together with every
+     * post it likes. Liked posts are always seen, but those below a watermark were never marked
+     * individually, and are included so their liked state can be saved along with the rest.
+     *
+     * @return a new array of post indexes in ascending order
+     */
+    public int[] getSeenPosts() {
+        int[] seen = seenPosts == null ? new int[0] : seenPosts.toArray();
+        if (watermarkAuthors == null || likedPosts == null) {
+            return seen; // Every liked post was marked individually
+        }
+        int[] liked = likedPosts.toArray();
+        int[] merged = new int[seen.length + liked.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < seen.length || j < liked.length) {
+            int next;
+            if (j == liked.length || (i < seen.length && seen[i] <= liked[j])) {
+                next = seen[i++];
+                if (j < liked.length && liked[j] == next) {
+                    j++; // Seen and liked, kept once
+                }
+            } else {
+                next = liked[j++];
+            }
+            merged[count++] = next;
+        }
+        return Arrays.copyOf(merged, count);
+    }
+
+    /**
+     * Retrieves the number of users whose posts this user has seen all of up to a watermark.
+     *
+     * @return the watermark count
+     */
+    public int getWatermarkCount() {
+        return watermarkAuthors == null ? 0 : watermarkAuthors.size();
+    }
+
+    /**
+     * Retrieves the dense id of the author of a watermark by its position.
+     *
+     * @param position the position, between 0 and the watermark count
+     * @return the dense id of the author
+     */
+    public int getWatermarkAuthor(int position) {
+        return watermarkAuthors.get(position);
+    }
+
+    /**
+     * Retrieves a watermark by its position.
+     *
+     * @param position the position, between 0 and the watermark count
+     * @return the number of the author's leading posts seen
+     */
+    public int getWatermark(int position) {
+        return watermarks[position];
+    }
+
+    /**
+     * Checks whether the user currently likes a post.
+     *
+     * @param postIndex the dense id of the post
+     * @return {@code true} if the post is liked
+     */
+    public boolean likes(int postIndex) {
+        return likedPosts != null && likedPosts.contains(postIndex);
+    }
+
+    /**
+     * Performs an action for the index of every post this user currently likes.
+     *
+     * @param action the action to perform
+     */
+    public void forEachLikedPost(IntConsumer action) {
+        if (likedPosts != null) {
+            likedPosts.forEach(action);
         }
     }
 
     /**
-     * Retrieves the list of posts created by the user.
+     * Checks that every follow edge of the user is recorded in both directions.
+     *
+     * @return {@code true} if the follow graph is consistent around the user, {@code false} otherwise
+     */
+    public boolean hasConsistentFollows() {
+        return graph.isConsistent(this);
+    }
+
+    /**
+     * Retrieves the dense integer id of the user.
      *
-     * @return the list of posts created by the user
+     * @return the user's index
      */
-    public ArrayList<Post> getPosts() {
-        return this.posts;
+    public int getIndex() {
+        return index;
     }
 
     /**
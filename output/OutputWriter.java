@@ -0,0 +1,244 @@
+package output;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes output text as UTF-8 bytes into a reusable buffer that is flushed to a file channel
+ * when full. Strings and ints are encoded straight into the buffer, so writing a line creates
+ * no objects. In asynchronous mode a background thread writes full buffers to disk while
+ * commands keep filling the other of two buffers, so execution only waits for the disk when
+ * both buffers are full.
+ */
+public class OutputWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16; // Size of each output buffer
+
+    private final FileChannel channel; // Channel the output is written to, or null for in-memory output
+    private byte[] buffer; // Buffer being filled
+    private int count; // Number of bytes in the buffer
+    private final BlockingQueue<ByteBuffer> fullBuffers; // Buffers waiting for the background thread
+    private final BlockingQueue<byte[]> freeBuffers; // Buffers the background thread has written
+    private final Thread backgroundWriter; // Thread writing full buffers, or null in synchronous mode
+    private volatile IOException backgroundFailure; // Error raised by the background thread
+
+    /**
+     * Opens a writer over the given file, truncating it.
+     *
+     * @param path  the path to the output file
+     * @param async whether full buffers are written by a background thread
+     * @throws IOException if the file cannot be opened
+     */
+    public OutputWriter(String path, boolean async) throws IOException {
+        this.channel = FileChannel.open(Path.of(path), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = new byte[BUFFER_SIZE];
+        if (async) {
+            this.fullBuffers = new ArrayBlockingQueue<>(1);
+            this.freeBuffers = new ArrayBlockingQueue<>(1);
+            this.freeBuffers.add(new byte[BUFFER_SIZE]); // The second buffer of the pair
+            this.backgroundWriter = new Thread(this::writeInBackground, "output-writer");
+            this.backgroundWriter.setDaemon(true);
+            this.backgroundWriter.start();
+        } else {
+            this.fullBuffers = null;
+            this.freeBuffers = null;
+            this.backgroundWriter = null;
+        }
+    }
+
+    /**
+     * Constructs a writer that keeps all output in memory until it is drained, for example
+     * to collect the output of commands executed on other threads.
+     */
+    public OutputWriter() {
+        this.channel = null;
+        this.buffer = new byte[256];
+        this.fullBuffers = null;
+        this.freeBuffers = null;
+        this.backgroundWriter = null;
+    }
+
+    /**
+     * Appends raw bytes, such as a precompiled piece of a message.
+     *
+     * @param bytes the bytes to append
+     * @return this writer
+     * @throws IOException if flushing the buffer fails
+     */
+    public OutputWriter append(byte[] bytes) throws IOException {
+        if (count + bytes.length > buffer.length) {
+            makeRoom(bytes.length);
+        }
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+        return this;
+    }
+
+    /**
+     * Appends a String encoded as UTF-8.
+     *
+     * @param text the text to append
+     * @return this writer
+     * @throws IOException if flushing the buffer fails
+     */
+    public OutputWriter append(String text) throws IOException {
+        int length = text.length();
+        if (count + length > buffer.length) {
+            makeRoom(length);
+        }
+        // ASCII characters are copied directly; anything else falls back to the charset encoder
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                return append(text.substring(i).getBytes(StandardCharsets.UTF_8));
+            }
+            buffer[count++] = (byte) c;
+        }
+        return this;
+    }
+
+    /**
+     * Appends the decimal representation of an int.
+     *
+     * @param value the value to append
+     * @return this writer
+     * @throws IOException if flushing the buffer fails
+     */
+    public OutputWriter append(int value) throws IOException {
+        if (count + 11 > buffer.length) {
+            makeRoom(11); // Enough for a sign and ten digits
+        }
+        long remaining = value;
+        if (remaining < 0) {
+            buffer[count++] = '-';
+            remaining = -remaining;
+        }
+        int digits = 1;
+        for (long bound = 10; bound <= remaining; bound *= 10) {
+            digits++;
+        }
+        for (int i = count + digits - 1; i >= count; i--) {
+            buffer[i] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        count += digits;
+        return this;
+    }
+
+    /**
+     * Ensures the buffer can take the given number of additional bytes, flushing it to the
+     * channel and growing it for a single oversized piece of text or for in-memory output.
+     *
+     * @param needed the number of bytes about to be appended
+     * @throws IOException if flushing the buffer fails
+     */
+    private void makeRoom(int needed) throws IOException {
+        if (channel != null && count > 0) {
+            flushBuffer();
+        }
+        if (count + needed > buffer.length) {
+            byte[] newBuffer = new byte[Math.max(2 * buffer.length, count + needed)];
+            System.arraycopy(buffer, 0, newBuffer, 0, count);
+            buffer = newBuffer;
+        }
+    }
+
+    /**
+     * Hands the filled part of the buffer to the channel, either directly or through the background thread.
+     *
+     * @throws IOException if writing fails
+     */
+    private void flushBuffer() throws IOException {
+        checkBackgroundFailure();
+        if (backgroundWriter == null) {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, count);
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } else {
+            try {
+                fullBuffers.put(ByteBuffer.wrap(buffer, 0, count));
+                buffer = freeBuffers.take(); // Wait only if the other buffer is still being written
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while handing output to the writer thread", e);
+            }
+        }
+        count = 0;
+    }
+
+    /**
+     * Writes full buffers to the channel until an empty buffer signals the end of the output.
+     */
+    private void writeInBackground() {
+        try {
+            while (true) {
+                ByteBuffer bytes = fullBuffers.take();
+                if (!bytes.hasRemaining()) {
+                    return; // End of output
+                }
+                try {
+                    while (bytes.hasRemaining()) {
+                        channel.write(bytes);
+                    }
+                } catch (IOException e) {
+                    backgroundFailure = e;
+                }
+                freeBuffers.put(bytes.array());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkBackgroundFailure() throws IOException {
+        if (backgroundFailure != null) {
+            throw backgroundFailure;
+        }
+    }
+
+    /**
+     * Removes and returns everything written so far by a writer that keeps output in memory.
+     *
+     * @return the buffered bytes
+     */
+    public byte[] drain() {
+        byte[] bytes = Arrays.copyOf(buffer, count);
+        count = 0;
+        return bytes;
+    }
+
+    /**
+     * Flushes any buffered output, stops the background thread and closes the channel.
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel == null) {
+            return; // Nothing to flush for in-memory output
+        }
+        if (count > 0) {
+            flushBuffer();
+        }
+        if (backgroundWriter != null) {
+            try {
+                fullBuffers.put(ByteBuffer.allocate(0)); // Tell the background thread to stop
+                backgroundWriter.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the writer thread", e);
+            }
+            checkBackgroundFailure();
+        }
+        channel.close();
+    }
+}
@@ -0,0 +1,91 @@
+package output;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * A precompiled output message. The pattern uses {@code %s} for each argument, as in
+ * {@link String#format}, and is split once into UTF-8 encoded literal pieces. Writing the
+ * message appends the pieces and the arguments straight into an {@link OutputWriter}, producing
+ * the same bytes {@code String.format} would without creating a Formatter, Strings or boxed ints.
+ */
+public class Template {
+    private final byte[][] pieces; // Literal text before each argument and after the last one
+
+    /**
+     * Compiles a message pattern.
+     *
+     * @param pattern the message with {@code %s} marking each argument
+     */
+    public Template(String pattern) {
+        ArrayList<byte[]> parts = new ArrayList<>();
+        int start = 0;
+        int marker;
+        while ((marker = pattern.indexOf("%s", start)) >= 0) {
+            parts.add(pattern.substring(start, marker).getBytes(StandardCharsets.UTF_8));
+            start = marker + 2;
+        }
+        parts.add(pattern.substring(start).getBytes(StandardCharsets.UTF_8));
+        this.pieces = parts.toArray(new byte[0][]);
+    }
+
+    /**
+     * Writes a message without arguments.
+     *
+     * @param writer the writer to append to
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(OutputWriter writer) throws IOException {
+        writer.append(pieces[0]);
+    }
+
+    /**
+     * Writes a message with one text argument.
+     *
+     * @param writer the writer to append to
+     * @param first  the argument
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(OutputWriter writer, String first) throws IOException {
+        writer.append(pieces[0]).append(first).append(pieces[1]);
+    }
+
+    /**
+     * Writes a message with two text arguments.
+     *
+     * @param writer the writer to append to
+     * @param first  the first argument
+     * @param second the second argument
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(OutputWriter writer, String first, String second) throws IOException {
+        writer.append(pieces[0]).append(first).append(pieces[1]).append(second).append(pieces[2]);
+    }
+
+    /**
+     * Writes a message with a text argument followed by a number.
+     *
+     * @param writer the writer to append to
+     * @param first  the text argument
+     * @param number the number argument
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(OutputWriter writer, String first, int number) throws IOException {
+        writer.append(pieces[0]).append(first).append(pieces[1]).append(number).append(pieces[2]);
+    }
+
+    /**
+     * Writes a message with two text arguments followed by a number.
+     *
+     * @param writer the writer to append to
+     * @param first  the first text argument
+     * @param second the second text argument
+     * @param number the number argument
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(OutputWriter writer, String first, String second, int number) throws IOException {
+        writer.append(pieces[0]).append(first).append(pieces[1]).append(second).append(pieces[2])
+                .append(number).append(pieces[3]);
+    }
+}
@@ -0,0 +1,119 @@
+package persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes little-endian binary data to a file through a reusable buffer. Counts and ids are
+ * written as variable-length integers, so the small numbers that dominate the data take one
+ * or two bytes, and strings are written as their UTF-8 length followed by the bytes.
+ */
+class BinaryWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20; // Bytes buffered before writing to the channel
+
+    private final FileChannel channel; // Channel the data is written to
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN); // Pending bytes
+
+    /**
+     * Creates or truncates a file for writing.
+     *
+     * @param path the path of the file
+     * @throws IOException if the file cannot be opened
+     */
+    BinaryWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Writes a fixed-width int.
+     *
+     * @param value the value
+     * @throws IOException if an I/O error occurs
+     */
+    void writeInt(int value) throws IOException {
+        ensure(4);
+        buffer.putInt(value);
+    }
+
+    /**
+     * Writes a non-negative int in 7-bit groups, lowest group first.
+     *
+     * @param value the non-negative value
+     * @throws IOException if an I/O error occurs
+     */
+    void writeVarInt(int value) throws IOException {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Writes a string as its UTF-8 byte length followed by the bytes.
+     *
+     * @param value the string
+     * @throws IOException if an I/O error occurs
+     */
+    void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length);
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    /**
+     * Makes room for a number of bytes in the buffer.
+     *
+     * @param bytes the number of bytes about to be written
+     * @throws IOException if flushing the buffer fails
+     */
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the buffered bytes to the channel.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes the remaining bytes, forces them to the storage device and closes the file.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package persistence;
+
+import commands.CommandDispatcher;
+import commands.CommandReader;
+import datastructures.HashTable;
+import datastructures.IdDictionary;
+import models.Post;
+import models.User;
+import output.OutputWriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only write-ahead journal of the commands that change the model, so the state
+ * survives a crash. The file starts with a header holding a magic number, the format version
+ * and the epoch of the checkpoint the journal continues from. Each record holds the length of
+ * a command line, the CRC-32 of its bytes and the bytes themselves, so a record torn by a
+ * crash is detected and dropped on recovery.
+ * <p>
+ * Records are buffered and made durable in groups: the journal is forced to the storage device
+ * once {@code syncEvery} records are pending or {@code syncMillis} milliseconds have passed since
+ * the last sync, whichever comes first, and a background thread syncs pending records when no
+ * further command arrives. A crash therefore loses at most the commands of one group.
+ * <p>
+ * A checkpoint writes the model to a {@link Snapshot} named after the next epoch and then
+ * atomically replaces the journal with an empty one of that epoch. Recovery loads the
+ * checkpoint named by the journal header and replays the records on top of it, so a crash at
+ * any point of a checkpoint leaves either the old checkpoint with the old journal or the new
+ * checkpoint with an empty journal.
+ */
+public class Journal implements Closeable {
+    private static final int MAGIC = 0x464E4A4C; // "FNJL" in little-endian order
+    private static final int VERSION = 1; // Format version written by this class
+    private static final int HEADER_SIZE = 12; // Bytes of the magic number, version and epoch
+    private static final int RECORD_HEADER_SIZE = 8; // Bytes of the length and checksum of a record
+    private static final int BUFFER_SIZE = 1 << 16; // Bytes of records buffered before writing to the channel
+
+    private final Path path; // Path of the journal file
+    private final int syncEvery; // Pending records that trigger a sync
+    private final long syncNanos; // Nanoseconds after the last sync that trigger a sync
+    private final CRC32 crc = new CRC32(); // Reusable checksum of record bytes
+    private final ScheduledExecutorService syncer; // Thread syncing idle pending records, or null without a time limit
+    private FileChannel channel; // Channel records are appended to
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN); // Records not yet written
+    private int epoch; // Epoch of the checkpoint the journal continues from, 0 for none
+    private int pending; // Records appended since the last sync
+    private long lastSync = System.nanoTime(); // Time of the last sync
+    private boolean recovered; // Whether the records have been replayed, so new ones may be appended
+    private volatile IOException syncFailure; // Error raised by the background sync
+
+    /**
+     * Opens a journal, creating an empty one of epoch 0 if the file does not exist. The records
+     * must be replayed with {@link #replay} before new ones are appended.
+     *
+     * @param path       the path of the journal file
+     * @param syncEvery  the number of pending records that triggers a sync, or 0 for no limit
+     * @param syncMillis the milliseconds after the last sync that trigger a sync, or 0 for no limit
+     * @throws IOException if the file cannot be opened or is not a journal of a supported version
+     */
+    public Journal(String path, int syncEvery, long syncMillis) throws IOException {
+        this.path = Path.of(path);
+        this.syncEvery = syncEvery > 0 ? syncEvery : Integer.MAX_VALUE;
+        this.syncNanos = syncMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(syncMillis) : Long.MAX_VALUE;
+        this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                writeHeader(channel, 0);
+                channel.force(true);
+            } else {
+                readHeader();
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        if (syncMillis > 0) {
+            this.syncer = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "journal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncer.scheduleWithFixedDelay(this::syncInBackground, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.syncer = null;
+        }
+    }
+
+    /**
+     * Retrieves the path of the checkpoint the journal continues from.
+     *
+     * @return the path of the checkpoint snapshot, or {@code null} if the journal starts from an empty model
+     */
+    public String getCheckpointPath() {
+        return epoch == 0 ? null : checkpointPath(epoch);
+    }
+
+    /**
+     * Re-executes every intact record through a dispatcher, discarding the output, and drops a
+     * torn or corrupt tail left by a crash so new records are appended after the last intact one.
+     * The model must hold the state of the checkpoint the journal continues from.
+     *
+     * @param dispatcher the dispatcher executing the commands, which must not journal them again
+     * @param output     the in-memory writer the dispatcher writes to
+     * @return the number of records replayed
+     * @throws IOException if the journal cannot be read or truncated
+     */
+    public synchronized int replay(CommandDispatcher dispatcher, OutputWriter output) throws IOException {
+        CommandReader command = new CommandReader();
+        long size = channel.size();
+        long position = HEADER_SIZE;
+        int records = 0;
+        channel.position(position);
+        buffer.clear().flip();
+        while (fill(RECORD_HEADER_SIZE)) {
+            int length = buffer.getInt(buffer.position());
+            int checksum = buffer.getInt(buffer.position() + 4);
+            if (length < 0 || length > size - position - RECORD_HEADER_SIZE || !fill(RECORD_HEADER_SIZE + length)) {
+                break; // Torn record
+            }
+            int start = buffer.position() + RECORD_HEADER_SIZE;
+            crc.reset();
+            crc.update(buffer.array(), start, length);
+            if ((int) crc.getValue() != checksum) {
+                break; // Corrupt record
+            }
+            command.load(buffer.array(), start, length);
+            dispatcher.dispatch(command);
+            output.drain();
+            buffer.position(start + length);
+            position += RECORD_HEADER_SIZE + length;
+            records++;
+        }
+        if (position < size) {
+            channel.truncate(position);
+            channel.force(true);
+        }
+        channel.position(position);
+        buffer.clear();
+        recovered = true;
+        return records;
+    }
+
+    /**
+     * Makes sure the read buffer holds a number of bytes after its position, compacting or
+     * growing it and reading more of the journal as needed.
+     *
+     * @param bytes the number of bytes about to be read
+     * @return {@code true} if the bytes are available, {@code false} if the journal ends first
+     * @throws IOException if an I/O error occurs
+     */
+    private boolean fill(int bytes) throws IOException {
+        while (buffer.remaining() < bytes) {
+            if (buffer.capacity() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(bytes, 2 * buffer.capacity())).order(ByteOrder.LITTLE_ENDIAN);
+                larger.put(buffer);
+                buffer = larger;
+            } else {
+                buffer.compact();
+            }
+            int read = channel.read(buffer);
+            buffer.flip();
+            if (read < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Appends the current line of a reader as a record, syncing the journal if the record
+     * completes a group.
+     *
+     * @param command the reader positioned on a command that changes the model
+     * @throws IOException if writing or syncing fails, now or in the background
+     */
+    public synchronized void append(CommandReader command) throws IOException {
+        if (!recovered) {
+            throw new IllegalStateException("Journal must be replayed before appending");
+        }
+        IOException failure = syncFailure;
+        if (failure != null) {
+            throw new IOException("Background journal sync failed", failure);
+        }
+        int length = command.lineLength();
+        if (buffer.remaining() < RECORD_HEADER_SIZE + length) {
+            write();
+            if (buffer.capacity() < RECORD_HEADER_SIZE + length) {
+                buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + length).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+        int start = buffer.position();
+        buffer.position(start + RECORD_HEADER_SIZE);
+        command.copyLine(buffer);
+        crc.reset();
+        crc.update(buffer.array(), start + RECORD_HEADER_SIZE, length);
+        buffer.putInt(start, length);
+        buffer.putInt(start + 4, (int) crc.getValue());
+        pending++;
+        if (pending >= syncEvery || System.nanoTime() - lastSync >= syncNanos) {
+            sync();
+        }
+    }
+
+    /**
+     * Writes the buffered records and forces them to the storage device.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public synchronized void sync() throws IOException {
+        write();
+        channel.force(false);
+        pending = 0;
+        lastSync = System.nanoTime();
+    }
+
+    /**
+     * Syncs records that have been pending for longer than the time limit, called periodically
+     * by the background thread. Errors are kept and raised by the next append.
+     */
+    private synchronized void syncInBackground() {
+        if (pending == 0 || syncFailure != null || System.nanoTime() - lastSync < syncNanos) {
+            return;
+        }
+        try {
+            sync();
+        } catch (IOException e) {
+            syncFailure = e;
+        }
+    }
+
+    /**
+     * Writes the buffered records to the channel.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private void write() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes the model to a new checkpoint and starts an empty journal continuing from it. The
+     * previous checkpoint is deleted once the new journal is in place.
+     *
+     * @param users   the hash table of users
+     * @param userIds the dictionary assigning dense ids to users
+     * @param postIds the dictionary assigning dense ids to posts
+     * @return the path of the new checkpoint
+     * @throws IOException if the checkpoint or the new journal cannot be written
+     */
+    public synchronized String checkpoint(HashTable<String, User> users,
+                                          IdDictionary<User> userIds, IdDictionary<Post> postIds) throws IOException {
+        sync();
+        int next = epoch + 1;
+        String checkpoint = checkpointPath(next);
+        Snapshot.save(checkpoint, users, userIds, postIds);
+
+        Path temporary = Path.of(path + ".tmp");
+        try (FileChannel fresh = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeHeader(fresh, next);
+            fresh.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        channel.close();
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(HEADER_SIZE);
+        if (epoch > 0) {
+            Files.deleteIfExists(Path.of(checkpointPath(epoch)));
+        }
+        epoch = next;
+        return checkpoint;
+    }
+
+    /**
+     * Builds the path of the checkpoint of an epoch.
+     *
+     * @param epoch the epoch
+     * @return the path of the checkpoint snapshot
+     */
+    private String checkpointPath(int epoch) {
+        return path + ".checkpoint." + epoch;
+    }
+
+    /**
+     * Reads and validates the header of an existing journal.
+     *
+     * @throws IOException if the file is not a journal of a supported version
+     */
+    private void readHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("Not a journal: " + path);
+            }
+        }
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a journal: " + path);
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported journal version " + version);
+        }
+        this.epoch = header.getInt();
+    }
+
+    /**
+     * Writes a journal header at the start of a file.
+     *
+     * @param target the channel of the file
+     * @param epoch  the epoch of the checkpoint the journal continues from
+     * @throws IOException if an I/O error occurs
+     */
+    private static void writeHeader(FileChannel target, int epoch) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(epoch).flip();
+        while (header.hasRemaining()) {
+            target.write(header, header.position());
+        }
+    }
+
+    /**
+     * Syncs the pending records, stops the background thread and closes the journal.
+     *
+     * @throws IOException if the final sync fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (syncer != null) {
+            syncer.shutdownNow();
+        }
+        synchronized (this) {
+            try {
+                if (recovered) {
+                    sync();
+                }
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
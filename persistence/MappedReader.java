@@ -0,0 +1,155 @@
+package persistence;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads data written by a {@link BinaryWriter} from a memory-mapped file. The file is mapped
+ * in windows of up to {@value #WINDOW_SIZE} bytes, so files larger than a single mapping can
+ * be read; the next window is mapped from the current position whenever a value would cross
+ * the end of the current one.
+ */
+class MappedReader implements Closeable {
+    private static final int WINDOW_SIZE = 1 << 30; // Largest region mapped at a time
+
+    private final FileChannel channel; // Channel the file is mapped from
+    private final long fileSize; // Size of the file in bytes
+    private MappedByteBuffer window; // Currently mapped region
+    private long windowStart; // File position of the first byte of the window
+
+    /**
+     * Opens and maps the start of a file.
+     *
+     * @param path the path of the file
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    MappedReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        map(0);
+    }
+
+    /**
+     * Reads a fixed-width int.
+     *
+     * @return the value
+     * @throws IOException if the file ends or cannot be mapped
+     */
+    int readInt() throws IOException {
+        ensure(4);
+        return window.getInt();
+    }
+
+    /**
+     * Reads an int written in 7-bit groups.
+     *
+     * @return the value
+     * @throws IOException if the file ends, cannot be mapped or the value is malformed
+     */
+    int readVarInt() throws IOException {
+        ensure((int) Math.min(5, remaining()));
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (!window.hasRemaining()) {
+                throw new EOFException("Unexpected end of file");
+            }
+            byte b = window.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+
+    /**
+     * Reads a string written as its UTF-8 byte length followed by the bytes.
+     *
+     * @return the string
+     * @throws IOException if the file ends, cannot be mapped or the length is malformed
+     */
+    String readString() throws IOException {
+        int length = readVarInt();
+        if (length < 0) {
+            throw new IOException("Malformed string length");
+        }
+        ensure(length);
+        byte[] bytes = new byte[length];
+        window.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Retrieves the file position of the next byte to be read.
+     *
+     * @return the position
+     */
+    long position() {
+        return windowStart + window.position();
+    }
+
+    /**
+     * Moves to a file position, mapping a new window from it.
+     *
+     * @param position the file position, no greater than the file size
+     * @throws IOException if the region cannot be mapped
+     */
+    void seek(long position) throws IOException {
+        map(position);
+    }
+
+    /**
+     * Retrieves the number of bytes left in the file.
+     *
+     * @return the remaining byte count
+     */
+    long remaining() {
+        return fileSize - windowStart - window.position();
+    }
+
+    /**
+     * Makes sure the window holds a number of bytes after the current position, mapping the
+     * next window if it does not.
+     *
+     * @param bytes the number of bytes about to be read
+     * @throws IOException if the file ends or cannot be mapped
+     */
+    private void ensure(int bytes) throws IOException {
+        if (window.remaining() >= bytes) {
+            return;
+        }
+        if (remaining() < bytes) {
+            throw new EOFException("Unexpected end of file");
+        }
+        map(windowStart + window.position());
+    }
+
+    /**
+     * Maps a window starting at a file position.
+     *
+     * @param start the file position
+     * @throws IOException if the region cannot be mapped
+     */
+    private void map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, fileSize - start));
+        window.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Closes the file. The mapping stays valid until it is garbage collected.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,295 @@
+package persistence;
+
+import datastructures.HashTable;
+import datastructures.IdDictionary;
+import models.FollowGraph;
+import models.Post;
+import models.User;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A binary image of the whole model, so a restart can load the state instead of replaying the
+ * command log. Users and posts are stored in dense id order, so restoring them in the same order
+ * reproduces every dense id and references between them are plain varints:
+ * <ol>
+ *     <li>a header with a magic number, the format version and the user and post counts,</li>
+ *     <li>the ID of every user,</li>
+ *     <li>every post as its author's dense id, ID, content and like count,</li>
+ *     <li>for every user, the posts it has seen one by one and the posts it likes as ascending deltas,
+ *     each tagged with whether it is liked,</li>
+ *     <li>for every user, its watermarks as the dense id of an author and the number of the author's
+ *     leading posts it has seen, absent in version 1 snapshots,</li>
+ *     <li>for every user, the dense ids of the users it follows,</li>
+ *     <li>the magic number again, guarding against truncated files.</li>
+ * </ol>
+ * Snapshots are loaded through a memory-mapped {@link MappedReader}, and the header lets the
+ * caller presize its tables before any entry is read. The whole file is checked before the
+ * model is touched, so a corrupt snapshot is refused without restoring any part of it.
+ */
+public class Snapshot implements Closeable {
+    private static final int MAGIC = 0x464E5350; // "FNSP" in little-endian order
+    private static final int VERSION = 2; // Format version written by this class
+    private static final int FIRST_VERSION = 1; // Oldest format version still read, without watermarks
+
+    private final MappedReader reader; // Reader positioned after the header
+    private final long bodyStart; // File position of the first entry after the header
+    private final int userCount; // Number of users in the snapshot
+    private final int postCount; // Number of posts in the snapshot
+    private final int version; // Format version of the snapshot
+
+    /**
+     * Opens a snapshot and reads its header.
+     *
+     * @param path the path of the snapshot file
+     * @throws IOException if the file cannot be read or is not a snapshot of a supported version
+     */
+    public Snapshot(String path) throws IOException {
+        this.reader = new MappedReader(Path.of(path));
+        try {
+            if (reader.readInt() != MAGIC) {
+                throw new IOException("Not a snapshot: " + path);
+            }
+            this.version = reader.readInt();
+            if (version < FIRST_VERSION || version > VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            this.userCount = reader.readInt();
+            this.postCount = reader.readInt();
+            this.bodyStart = reader.position();
+        } catch (IOException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Retrieves the number of users in the snapshot, for presizing tables.
+     *
+     * @return the user count
+     */
+    public int getUserCount() {
+        return userCount;
+    }
+
+    /**
+     * Retrieves the number of posts in the snapshot, for presizing tables.
+     *
+     * @return the post count
+     */
+    public int getPostCount() {
+        return postCount;
+    }
+
+    /**
+     * Writes the model to a snapshot file.
+     *
+     * @param path    the path of the snapshot file, replaced if it exists
+     * @param users   the hash table of users
+     * @param userIds the dictionary assigning dense ids to users
+     * @param postIds the dictionary assigning dense ids to posts
+     * @throws IOException if an I/O error occurs
+     */
+    public static void save(String path, HashTable<String, User> users,
+                            IdDictionary<User> userIds, IdDictionary<Post> postIds) throws IOException {
+        try (BinaryWriter writer = new BinaryWriter(Path.of(path))) {
+            writer.writeInt(MAGIC);
+            writer.writeInt(VERSION);
+            writer.writeInt(userIds.size());
+            writer.writeInt(postIds.size());
+
+            for (int i = 0; i < userIds.size(); i++) {
+                writer.writeString(userIds.keyOf(i));
+            }
+
+            for (int i = 0; i < postIds.size(); i++) {
+                Post post = postIds.get(i);
+                writer.writeVarInt(users.get(post.getAuthor()).getIndex());
+                writer.writeString(post.getPostID());
+                writer.writeString(post.getContent());
+                writer.writeVarInt(post.getLikes());
+            }
+
+            for (int i = 0; i < userIds.size(); i++) {
+                User user = userIds.get(i);
+                int[] seen = user.getSeenPosts(); // Ascending, so the deltas are non-negative
+                writer.writeVarInt(seen.length);
+                int previous = 0;
+                for (int postIndex : seen) {
+                    writer.writeVarInt((postIndex - previous) << 1 | (user.likes(postIndex) ? 1 : 0));
+                    previous = postIndex;
+                }
+            }
+
+            for (int i = 0; i < userIds.size(); i++) {
+                User user = userIds.get(i);
+                writer.writeVarInt(user.getWatermarkCount());
+                for (int j = 0; j < user.getWatermarkCount(); j++) {
+                    writer.writeVarInt(user.getWatermarkAuthor(j));
+                    writer.writeVarInt(user.getWatermark(j));
+                }
+            }
+
+            for (int i = 0; i < userIds.size(); i++) {
+                User user = userIds.get(i);
+                writer.writeVarInt(user.getFolloweeCount());
+                for (int j = 0; j < user.getFolloweeCount(); j++) {
+                    writer.writeVarInt(user.getFolloweeIndex(j));
+                }
+            }
+
+            writer.writeInt(MAGIC);
+        }
+    }
+
+    /**
+     * Restores the snapshot into an empty model. The snapshot is validated first, so the model
+     * is left empty if it is corrupt. Follows are restored last, so push-mode inboxes are rebuilt
+     * from the restored posts and seen posts.
+     *
+     * @param users   the empty hash table of users
+     * @param posts   the empty hash table of posts
+     * @param userIds the empty dictionary assigning dense ids to users
+     * @param postIds the empty dictionary assigning dense ids to posts
+     * @param graph   the graph recording follows between users
+     * @throws IOException if the snapshot cannot be read or is corrupt
+     */
+    public void load(HashTable<String, User> users, HashTable<String, Post> posts,
+                     IdDictionary<User> userIds, IdDictionary<Post> postIds, FollowGraph graph) throws IOException {
+        validate();
+
+        for (int i = 0; i < userCount; i++) {
+            String userID = reader.readString();
+            User user = new User(userID, userIds.nextId(), graph);
+            userIds.add(userID, user);
+            users.put(userID, user);
+        }
+
+        for (int i = 0; i < postCount; i++) {
+            User author = userIds.get(reader.readVarInt());
+            String postID = reader.readString();
+            String content = reader.readString();
+            Post post = new Post(author.getUserId(), postID, content, postIds.nextId(), reader.readVarInt());
+            postIds.add(postID, post);
+            posts.put(postID, post);
+            author.restorePost(post);
+        }
+
+        for (int i = 0; i < userCount; i++) {
+            User user = userIds.get(i);
+            int seenCount = reader.readVarInt();
+            int postIndex = 0;
+            for (int j = 0; j < seenCount; j++) {
+                int entry = reader.readVarInt();
+                postIndex += entry >>> 1;
+                user.restoreSeenPost(postIndex, (entry & 1) != 0);
+            }
+        }
+
+        if (version >= 2) {
+            for (int i = 0; i < userCount; i++) {
+                User user = userIds.get(i);
+                int watermarkCount = reader.readVarInt();
+                for (int j = 0; j < watermarkCount; j++) {
+                    User author = userIds.get(reader.readVarInt());
+                    user.restoreWatermark(author, reader.readVarInt());
+                }
+            }
+        }
+
+        for (int i = 0; i < userCount; i++) {
+            User user = userIds.get(i);
+            int followeeCount = reader.readVarInt();
+            for (int j = 0; j < followeeCount; j++) {
+                user.follow(userIds.get(reader.readVarInt()));
+            }
+        }
+        reader.readInt(); // The trailer, already checked
+    }
+
+    /**
+     * Reads every entry without restoring any, checking that each reference is in range and
+     * that the trailer is intact, then moves back to the first entry.
+     *
+     * @throws IOException if the snapshot cannot be read or is corrupt
+     */
+    private void validate() throws IOException {
+        if (userCount < 0 || postCount < 0 || (long) userCount + postCount > reader.remaining()) {
+            throw new IOException("Corrupt snapshot: counts exceed the file size");
+        }
+
+        for (int i = 0; i < userCount; i++) {
+            reader.readString();
+        }
+
+        int[] postCounts = new int[userCount]; // Number of posts of each user, by dense id
+        for (int i = 0; i < postCount; i++) {
+            postCounts[checkUser(reader.readVarInt())]++;
+            reader.readString();
+            reader.readString();
+            reader.readVarInt();
+        }
+
+        for (int i = 0; i < userCount; i++) {
+            int seenCount = reader.readVarInt();
+            long postIndex = 0;
+            for (int j = 0; j < seenCount; j++) {
+                postIndex += reader.readVarInt() >>> 1;
+                if (postIndex >= postCount) {
+                    throw new IOException("Corrupt snapshot: seen post " + postIndex + " out of range");
+                }
+            }
+        }
+
+        if (version >= 2) {
+            for (int i = 0; i < userCount; i++) {
+                int watermarkCount = reader.readVarInt();
+                for (int j = 0; j < watermarkCount; j++) {
+                    int author = checkUser(reader.readVarInt());
+                    int count = reader.readVarInt();
+                    if (count < 0 || count > postCounts[author]) {
+                        throw new IOException("Corrupt snapshot: watermark " + count + " beyond the posts of user " + author);
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < userCount; i++) {
+            int followeeCount = reader.readVarInt();
+            for (int j = 0; j < followeeCount; j++) {
+                checkUser(reader.readVarInt());
+            }
+        }
+
+        if (reader.readInt() != MAGIC) {
+            throw new IOException("Corrupt snapshot: missing trailer");
+        }
+        reader.seek(bodyStart);
+    }
+
+    /**
+     * Checks that a dense user id read from the snapshot belongs to one of its users.
+     *
+     * @param index the dense id
+     * @return the dense id
+     * @throws IOException if the id is out of range
+     */
+    private int checkUser(int index) throws IOException {
+        if (index < 0 || index >= userCount) {
+            throw new IOException("Corrupt snapshot: user " + index + " out of range");
+        }
+        return index;
+    }
+
+    /**
+     * Closes the snapshot file.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,148 @@
+package stats;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of latencies in nanoseconds with log-linear buckets in the style of
+ * HdrHistogram: values below {@value #SUB_BUCKETS} get a bucket each, and every larger power
+ * of two is split into {@value #HALF_BUCKETS} equal buckets, so any recorded value is reported
+ * within 1/{@value #HALF_BUCKETS} of its true value. The counts live in one preallocated
+ * array, so recording never allocates.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7; // Bits of precision kept per value
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // Values with a bucket of their own
+    private static final int HALF_BUCKETS = SUB_BUCKETS / 2; // Buckets per power of two above SUB_BUCKETS
+    private static final int BUCKET_COUNT = bucketOf(Long.MAX_VALUE) + 1; // Buckets covering every long
+
+    private final long[] counts = new long[BUCKET_COUNT]; // Number of values recorded in each bucket
+    private long count; // Number of values recorded
+    private long sum; // Sum of the values recorded
+    private long max; // Largest value recorded
+
+    /**
+     * Records a latency. Negative values are recorded as 0.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts[bucketOf(value)]++;
+        count++;
+        sum += value;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Adds the values of another histogram to this one.
+     *
+     * @param other the histogram to add
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Forgets every recorded value.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    /**
+     * Retrieves the number of values recorded.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Retrieves the sum of the values recorded.
+     *
+     * @return the total in nanoseconds
+     */
+    public long getTotal() {
+        return sum;
+    }
+
+    /**
+     * Retrieves the largest value recorded.
+     *
+     * @return the maximum in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Retrieves the mean of the values recorded.
+     *
+     * @return the mean in nanoseconds, or 0 if nothing was recorded
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Retrieves the value below which a percentage of the recorded values fall.
+     *
+     * @param percentile the percentage, from 0 to 100
+     * @return the highest value of the bucket holding the percentile, capped at the maximum,
+     *         or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Finds the bucket of a value.
+     *
+     * @param value the non-negative value
+     * @return the index of the bucket
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS; // Keeps the top bits in [HALF_BUCKETS, SUB_BUCKETS)
+        return shift * HALF_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * Finds the highest value that falls into a bucket.
+     *
+     * @param bucket the index of the bucket
+     * @return the highest value of the bucket
+     */
+    private static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / HALF_BUCKETS - 1;
+        long mantissa = bucket - (long) shift * HALF_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
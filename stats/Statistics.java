@@ -0,0 +1,271 @@
+package stats;
+
+import commands.Opcode;
+import datastructures.HashTable;
+import models.ContentArena;
+import models.FeedCache;
+import models.LikeCoalescer;
+import models.Post;
+import models.User;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runtime statistics of a command log being processed: a count and a latency histogram per
+ * command type, and gauges for the model size, the work done by feeds, the feed cache and the JVM heap.
+ * Recording a latency only increments preallocated counters, so the dispatch path does not
+ * allocate. Latencies are recorded by the dispatching thread without synchronization, so
+ * reports built on other threads, over JMX or by the periodic dump, may lag slightly behind.
+ */
+public class Statistics implements StatisticsMBean, Closeable {
+    private static final String OBJECT_NAME = "socialmedia:type=Statistics"; // Name of the MBean
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9}; // Percentiles in the report
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Opcode.values().length]; // Latencies by opcode
+    private final HashTable<String, User> users; // Hash table of users, for the user gauge
+    private final HashTable<String, Post> posts; // Hash table of posts, for the post gauge
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean(); // Source of the heap gauges
+    private ScheduledExecutorService dumper; // Thread writing the periodic dump, or null
+    private String dumpPath; // Path of the periodic dump, or null
+    private ObjectName registeredName; // Name the MBean is registered under, or null
+
+    /**
+     * Constructs empty statistics over a model.
+     *
+     * @param users the hash table of users
+     * @param posts the hash table of posts
+     */
+    public Statistics(HashTable<String, User> users, HashTable<String, Post> posts) {
+        this.users = users;
+        this.posts = posts;
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Records the execution of a command.
+     *
+     * @param opcode the command
+     * @param nanos  the time the command took in nanoseconds
+     */
+    public void record(Opcode opcode, long nanos) {
+        latencies[opcode.ordinal()].record(nanos);
+    }
+
+    /**
+     * Registers the statistics with the platform MBean server under {@value #OBJECT_NAME}.
+     *
+     * @throws JMException if the MBean cannot be registered
+     */
+    public void registerMBean() throws JMException {
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        registeredName = name;
+    }
+
+    /**
+     * Starts writing the report to a file periodically from a background thread. Each dump
+     * replaces the previous one, and a final dump is written on {@link #close()}.
+     *
+     * @param path   the path of the dump file
+     * @param millis the milliseconds between dumps
+     */
+    public void startDump(String path, long millis) {
+        dumpPath = path;
+        dumper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "stats-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> {
+            try {
+                dump(path);
+            } catch (IOException e) {
+                // Statistics are best effort, so a failed dump is retried at the next period
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes the report to a file, replacing it atomically so readers never see a partial report.
+     *
+     * @param path the path of the dump file
+     * @throws IOException if the file cannot be written
+     */
+    public void dump(String path) throws IOException {
+        Path target = Path.of(path);
+        Path temporary = Path.of(path + ".tmp");
+        Files.write(temporary, getReport().getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public long getCommandCount() {
+        long count = 0;
+        for (LatencyHistogram histogram : latencies) {
+            count += histogram.getCount();
+        }
+        return count;
+    }
+
+    @Override
+    public int getUserCount() {
+        return users.size();
+    }
+
+    @Override
+    public int getPostCount() {
+        return posts.size();
+    }
+
+    @Override
+    public long getFeedCount() {
+        return User.getFeedsCollected();
+    }
+
+    @Override
+    public double getMeanFeedSources() {
+        long feeds = User.getFeedsCollected();
+        return feeds == 0 ? 0 : (double) User.getFeedSources() / feeds;
+    }
+
+    @Override
+    public long getFeedCacheHits() {
+        FeedCache cache = User.getFeedCache();
+        return cache == null ? 0 : cache.getHits();
+    }
+
+    @Override
+    public long getFeedCacheMisses() {
+        FeedCache cache = User.getFeedCache();
+        return cache == null ? 0 : cache.getMisses();
+    }
+
+    @Override
+    public long getFeedCacheEvictions() {
+        FeedCache cache = User.getFeedCache();
+        return cache == null ? 0 : cache.getEvictions();
+    }
+
+    @Override
+    public long getFeedCacheBytes() {
+        FeedCache cache = User.getFeedCache();
+        return cache == null ? 0 : cache.getBytes();
+    }
+
+    @Override
+    public long getHeapUsed() {
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    @Override
+    public long getHeapCommitted() {
+        return memory.getHeapMemoryUsage().getCommitted();
+    }
+
+    @Override
+    public long getHeapMax() {
+        return memory.getHeapMemoryUsage().getMax();
+    }
+
+    @Override
+    public double latencyPercentile(String command, double percentile) {
+        for (Opcode opcode : Opcode.values()) {
+            if (opcode.getCommand().equals(command)) {
+                return latencies[opcode.ordinal()].getValueAtPercentile(percentile) / 1e3;
+            }
+        }
+        throw new IllegalArgumentException("Unknown command " + command);
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram histogram : latencies) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Builds the report: the gauges, including the feed cache's when feeds are cached and the
+     * content arena's when content is kept off the heap, then one row of latencies in
+     * microseconds per command type that has been executed.
+     *
+     * @return the report, ending with a line break
+     */
+    @Override
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        MemoryUsage heap = memory.getHeapMemoryUsage();
+        report.append(String.format("Users: %d, Posts: %d, Commands: %d\n", getUserCount(), getPostCount(), getCommandCount()));
+        report.append(String.format("Feeds: %d, Mean candidate sources: %.2f\n", getFeedCount(), getMeanFeedSources()));
+        FeedCache cache = User.getFeedCache();
+        if (cache != null) {
+            report.append(String.format("Feed cache: %d hits, %d misses, %d evictions, %d entries, %.1f of %.1f MB\n",
+                    cache.getHits(), cache.getMisses(), cache.getEvictions(), cache.getEntryCount(),
+                    cache.getBytes() / 1048576.0, cache.getBudget() / 1048576.0));
+        }
+        LikeCoalescer likes = User.getLikeCoalescer();
+        if (likes != null) {
+            report.append(String.format("Likes: %d events, %d applied\n", likes.getEvents(), likes.getApplied()));
+        }
+        report.append(String.format("Heap: %.1f MB used, %.1f MB committed, %.1f MB max\n",
+                heap.getUsed() / 1048576.0, heap.getCommitted() / 1048576.0, heap.getMax() / 1048576.0));
+        ContentArena arena = Post.getContentArena();
+        if (arena != null) {
+            report.append(String.format("Content arena: %d slabs, %.1f MB used of %.1f MB off the heap\n",
+                    arena.getSlabCount(), arena.getUsedBytes() / 1048576.0, arena.getAllocatedBytes() / 1048576.0));
+        }
+        report.append(String.format("%-24s %10s %10s", "command", "count", "mean"));
+        for (double percentile : PERCENTILES) {
+            String label = percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+            report.append(String.format(" %10s", "p" + label));
+        }
+        report.append(String.format(" %10s   (us)\n", "max"));
+        for (Opcode opcode : Opcode.values()) {
+            LatencyHistogram histogram = latencies[opcode.ordinal()];
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            report.append(String.format("%-24s %10d %10.2f", opcode.getCommand(), histogram.getCount(), histogram.getMean() / 1e3));
+            for (double percentile : PERCENTILES) {
+                report.append(String.format(" %10.2f", histogram.getValueAtPercentile(percentile) / 1e3));
+            }
+            report.append(String.format(" %10.2f\n", histogram.getMax() / 1e3));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Stops the periodic dump, writing a final one, and unregisters the MBean.
+     *
+     * @throws IOException if the final dump cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dump(dumpPath);
+        }
+        if (registeredName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+            } catch (JMException e) {
+                // The MBean is already gone
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package stats;
+
+/**
+ * The management interface of {@link Statistics}, exposed over JMX.
+ */
+public interface StatisticsMBean {
+    /**
+     * Retrieves the number of commands executed.
+     *
+     * @return the command count
+     */
+    long getCommandCount();
+
+    /**
+     * Retrieves the number of users.
+     *
+     * @return the user count
+     */
+    int getUserCount();
+
+    /**
+     * Retrieves the number of posts.
+     *
+     * @return the post count
+     */
+    int getPostCount();
+
+    /**
+     * Retrieves the number of feeds collected.
+     *
+     * @return the feed count
+     */
+    long getFeedCount();
+
+    /**
+     * Retrieves the mean number of candidate sources merged per feed.
+     *
+     * @return the mean source count
+     */
+    double getMeanFeedSources();
+
+    /**
+     * Retrieves the number of feeds served from the feed cache.
+     *
+     * @return the hit count, or 0 if feeds are not cached
+     */
+    long getFeedCacheHits();
+
+    /**
+     * Retrieves the number of feeds that missed the feed cache and were collected.
+     *
+     * @return the miss count, or 0 if feeds are not cached
+     */
+    long getFeedCacheMisses();
+
+    /**
+     * Retrieves the number of feeds evicted from the feed cache to stay within its budget.
+     *
+     * @return the eviction count, or 0 if feeds are not cached
+     */
+    long getFeedCacheEvictions();
+
+    /**
+     * Retrieves the estimated bytes retained by the feed cache.
+     *
+     * @return the cache size, or 0 if feeds are not cached
+     */
+    long getFeedCacheBytes();
+
+    /**
+     * Retrieves the bytes of heap in use.
+     *
+     * @return the used heap size
+     */
+    long getHeapUsed();
+
+    /**
+     * Retrieves the bytes of heap committed by the JVM.
+     *
+     * @return the committed heap size
+     */
+    long getHeapCommitted();
+
+    /**
+     * Retrieves the most bytes of heap the JVM may use.
+     *
+     * @return the maximum heap size, or -1 if undefined
+     */
+    long getHeapMax();
+
+    /**
+     * Builds the full text report.
+     *
+     * @return the report
+     */
+    String getReport();
+
+    /**
+     * Retrieves a latency percentile of a command type.
+     *
+     * @param command    the command name, such as generate_feed
+     * @param percentile the percentile, from 0 to 100
+     * @return the latency in microseconds, or 0 if the command has not been executed
+     */
+    double latencyPercentile(String command, double percentile);
+
+    /**
+     * Forgets the recorded latencies and command counts.
+     */
+    void reset();
+}
@@ -0,0 +1,158 @@
+package workload;
+
+import commands.CommandDispatcher;
+import commands.CommandReader;
+import commands.Opcode;
+import datastructures.HashTable;
+import datastructures.IdDictionary;
+import models.ContentArena;
+import models.FeedCache;
+import models.FollowGraph;
+import models.LikeCoalescer;
+import models.Post;
+import models.User;
+import output.OutputWriter;
+import stats.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * Replays a command file sequentially, the way {@code Main} does, and reports the throughput
+ * and the latency percentiles of every command type. Each dispatch is timed on its own, so
+ * the latencies include the action and its output but not the parsing of the line; the
+ * throughput covers everything. The engine, feed mode, feed cache, like batching and content
+ * storage are selected with the same system properties as {@code Main}, and
+ * {@code -Dharness.warmup=N} leaves the first {@code N} commands out of the latencies while
+ * the JIT compiler warms up.
+ */
+public class ReplayHarness {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9}; // Percentiles reported per command
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Opcode.values().length]; // Latencies by opcode
+    private final LatencyHistogram overall = new LatencyHistogram(); // Latencies of every command
+    private long commands; // Number of commands replayed
+    private long elapsed; // Nanoseconds taken by the whole replay
+
+    /**
+     * Constructs a harness with empty histograms.
+     */
+    public ReplayHarness() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Replays a command file and prints the report.
+     *
+     * @param args the path of the command file and, optionally, the path of the output file;
+     *             the output is discarded without one
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        String outputPath = args.length > 1 ? args[1]
+                : System.getProperty("os.name").startsWith("Windows") ? "NUL" : "/dev/null";
+        OutputWriter writer = new OutputWriter(outputPath, Boolean.getBoolean("output.async"));
+        CommandReader reader = new CommandReader(args[0]);
+
+        HashTable.Engine engine = HashTable.Engine.valueOf(System.getProperty("hashtable.engine", "CHAINING"));
+        HashTable<String, User> users = new HashTable<>(engine);
+        HashTable<String, Post> posts = new HashTable<>(engine);
+        User.setPushThreshold(Integer.getInteger("feed.push.threshold", -1));
+        long feedCacheBytes = Long.getLong("feed.cache.bytes", 0);
+        if (feedCacheBytes > 0) {
+            User.setFeedCache(new FeedCache(feedCacheBytes));
+        }
+        if (Boolean.getBoolean("content.offheap")) {
+            Post.setContentArena(new ContentArena(Integer.getInteger("content.slabBytes", 16 << 20)));
+        }
+        int likesBatch = Integer.getInteger("likes.batch", 0);
+        if (likesBatch > 0) {
+            User.setLikeCoalescer(new LikeCoalescer(likesBatch));
+        }
+        IdDictionary<User> userIds = new IdDictionary<>();
+        IdDictionary<Post> postIds = new IdDictionary<>();
+        FollowGraph graph = new FollowGraph(userIds);
+        CommandDispatcher dispatcher = new CommandDispatcher(users, posts, userIds, postIds, graph, null, null, writer);
+
+        ReplayHarness harness = new ReplayHarness();
+        harness.replay(reader, dispatcher, Long.getLong("harness.warmup", 0));
+        if (User.getLikeCoalescer() != null) {
+            User.getLikeCoalescer().flush();
+        }
+        writer.close();
+        reader.close();
+        harness.report(System.out);
+    }
+
+    /**
+     * Replays every command of a reader, timing each dispatch.
+     *
+     * @param reader     the reader of the command file
+     * @param dispatcher the dispatcher executing the commands
+     * @param warmup     the number of leading commands left out of the latencies
+     * @throws IOException if reading or writing fails
+     */
+    public void replay(CommandReader reader, CommandDispatcher dispatcher, long warmup) throws IOException {
+        long start = System.nanoTime();
+        while (reader.nextLine()) {
+            Opcode opcode = reader.opcode();
+            long before = System.nanoTime();
+            dispatcher.dispatch(reader);
+            long latency = System.nanoTime() - before;
+            if (opcode != null && commands++ >= warmup) {
+                latencies[opcode.ordinal()].record(latency);
+                overall.record(latency);
+            }
+        }
+        elapsed = System.nanoTime() - start;
+    }
+
+    /**
+     * Prints the throughput and a table of latencies in microseconds per command type.
+     *
+     * @param out the stream to print to
+     */
+    public void report(PrintStream out) {
+        double seconds = elapsed / 1e9;
+        out.printf("Replayed %d commands in %.3f s (%.0f commands/s)%n", commands, seconds, commands / seconds);
+        out.printf("%-24s %10s %10s", "command", "count", "mean");
+        for (double percentile : PERCENTILES) {
+            out.printf(" %10s", "p" + formatPercentile(percentile));
+        }
+        out.printf(" %10s   (us)%n", "max");
+        for (Opcode opcode : Opcode.values()) {
+            printRow(out, opcode.getCommand(), latencies[opcode.ordinal()]);
+        }
+        printRow(out, "all", overall);
+    }
+
+    /**
+     * Prints the latencies of one command type, if it was replayed.
+     *
+     * @param out       the stream to print to
+     * @param name      the name of the row
+     * @param histogram the latencies
+     */
+    private static void printRow(PrintStream out, String name, LatencyHistogram histogram) {
+        if (histogram.getCount() == 0) {
+            return;
+        }
+        out.printf("%-24s %10d %10.2f", name, histogram.getCount(), histogram.getMean() / 1e3);
+        for (double percentile : PERCENTILES) {
+            out.printf(" %10.2f", histogram.getValueAtPercentile(percentile) / 1e3);
+        }
+        out.printf(" %10.2f%n", histogram.getMax() / 1e3);
+    }
+
+    /**
+     * Formats a percentile without a trailing zero fraction.
+     *
+     * @param percentile the percentile
+     * @return the percentile as text, such as 99 or 99.9
+     */
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
+}
@@ -0,0 +1,268 @@
+package workload;
+
+import concurrent.ConcurrentEngine;
+import models.FeedCache;
+import models.LikeCoalescer;
+import models.User;
+import output.OutputWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs follow, unfollow, toggle_like and scroll_through_feed from several threads against one
+ * {@link ConcurrentEngine} and verifies the model between rounds. The users and their posts are
+ * created first, each user following users drawn from a Zipf distribution. In every round each
+ * thread then executes a random mix of commands: follows and unfollows of popular users, likes
+ * of popular posts and scrolls that like some of the scrolled posts, so the same users and posts
+ * are contended by all threads. Once all threads have finished a round,
+ * {@link ConcurrentEngine#checkInvariants()} must find every like count equal to the number of
+ * likers and every follow recorded in both directions; otherwise the violations are printed and
+ * the harness exits with status 1, as it does when a thread fails. Push mode, the feed cache
+ * and batched likes are not safe under the engine's locks, so before the first round the harness
+ * also checks that none of them can be enabled and exits with status 1 if one can.
+ * <p>
+ * The harness is configured through system properties:
+ * <ul>
+ *     <li>{@code stress.threads}: threads executing commands, the number of processors but at least 4 by default,</li>
+ *     <li>{@code stress.rounds}: rounds, each followed by a check, 10 by default,</li>
+ *     <li>{@code stress.operations}: commands per thread and round, 20000 by default,</li>
+ *     <li>{@code stress.users}: number of users, 200 by default,</li>
+ *     <li>{@code stress.follows}: follows per user during the setup, 10 by default,</li>
+ *     <li>{@code stress.posts}: number of posts, 1000 by default,</li>
+ *     <li>{@code stress.stripes}: lock stripes of the engine, 64 by default,</li>
+ *     <li>{@code stress.exponent}: skew of the Zipf distributions, 1.0 by default,</li>
+ *     <li>{@code stress.seed}: seed of the random choices, 42 by default.</li>
+ * </ul>
+ */
+public class StressHarness {
+    private static final int FEED_SIZE = 10; // Posts scrolled per scroll_through_feed
+    private static final double LIKE_RATE = 0.3; // Probability of liking a scrolled post
+    private static final int MAX_VIOLATIONS_PRINTED = 20; // Violations printed before the rest are only counted
+
+    private final ConcurrentEngine engine; // Engine all threads execute commands on
+    private final int threadCount; // Threads executing commands
+    private final long operations; // Commands per thread and round
+    private final int userCount; // Number of users
+    private final int follows; // Follows per user during the setup
+    private final int postCount; // Number of posts
+    private final ZipfSampler userPopularity; // Draws users by popularity
+    private final ZipfSampler postPopularity; // Draws posts by popularity
+    private final long seed; // Seed of the random choices
+
+    /**
+     * Constructs a harness over an empty engine.
+     *
+     * @param threadCount the threads executing commands
+     * @param operations  the commands per thread and round
+     * @param userCount   the number of users
+     * @param follows     the follows per user during the setup
+     * @param postCount   the number of posts
+     * @param stripeCount the lock stripes of the engine
+     * @param exponent    the skew of the Zipf distributions
+     * @param seed        the seed of the random choices
+     */
+    public StressHarness(int threadCount, long operations, int userCount, int follows, int postCount,
+                         int stripeCount, double exponent, long seed) {
+        this.engine = new ConcurrentEngine(stripeCount);
+        this.threadCount = threadCount;
+        this.operations = operations;
+        this.userCount = userCount;
+        this.follows = Math.min(follows, userCount - 1);
+        this.postCount = postCount;
+        this.userPopularity = new ZipfSampler(userCount, exponent);
+        this.postPopularity = new ZipfSampler(postCount, exponent);
+        this.seed = seed;
+    }
+
+    /**
+     * Runs the configured rounds and exits with status 1 on the first inconsistent round.
+     *
+     * @param args unused
+     * @throws IOException          if executing a command fails
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        StressHarness harness = new StressHarness(
+                Integer.getInteger("stress.threads", Math.max(4, Runtime.getRuntime().availableProcessors())),
+                Long.getLong("stress.operations", 20000),
+                Integer.getInteger("stress.users", 200),
+                Integer.getInteger("stress.follows", 10),
+                Integer.getInteger("stress.posts", 1000),
+                Integer.getInteger("stress.stripes", 64),
+                Double.parseDouble(System.getProperty("stress.exponent", "1.0")),
+                Long.getLong("stress.seed", 42));
+        ArrayList<String> enabled = checkSequentialModesRefused();
+        if (!enabled.isEmpty()) {
+            enabled.forEach(mode -> System.out.println(mode + " could be enabled next to a ConcurrentEngine"));
+            System.exit(1);
+        }
+        harness.setUp();
+        int rounds = Integer.getInteger("stress.rounds", 10);
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            Throwable failure = harness.runRound(round);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if (failure != null) {
+                System.out.printf("Round %d failed on a thread%n", round);
+                failure.printStackTrace(System.out);
+                System.exit(1);
+            }
+            ArrayList<String> violations = harness.engine.checkInvariants();
+            System.out.printf("Round %d: %d commands on %d threads in %.3f s, %d violations%n",
+                    round, harness.threadCount * harness.operations, harness.threadCount, seconds, violations.size());
+            if (!violations.isEmpty()) {
+                for (int i = 0; i < Math.min(violations.size(), MAX_VIOLATIONS_PRINTED); i++) {
+                    System.out.println("  " + violations.get(i));
+                }
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * Tries to enable each mode that is only safe when commands run on a single thread. The
+     * engine already exists, so each attempt must be refused.
+     *
+     * @return the modes that could be enabled; empty if every attempt was refused
+     */
+    public static ArrayList<String> checkSequentialModesRefused() {
+        ArrayList<String> enabled = new ArrayList<>();
+        try {
+            User.setPushThreshold(0);
+            User.setPushThreshold(-1);
+            enabled.add("Push mode");
+        } catch (IllegalStateException expected) {
+            // Refused, as it must be
+        }
+        try {
+            User.setFeedCache(new FeedCache(1 << 20));
+            User.setFeedCache(null);
+            enabled.add("The feed cache");
+        } catch (IllegalStateException expected) {
+            // Refused, as it must be
+        }
+        try {
+            User.setLikeCoalescer(new LikeCoalescer(64));
+            User.setLikeCoalescer(null);
+            enabled.add("Like batching");
+        } catch (IllegalStateException expected) {
+            // Refused, as it must be
+        }
+        return enabled;
+    }
+
+    /**
+     * Creates the users, their follows and the posts on the calling thread.
+     *
+     * @throws IOException if executing a command fails
+     */
+    public void setUp() throws IOException {
+        OutputWriter writer = new OutputWriter();
+        Random random = new Random(seed);
+        for (int i = 0; i < userCount; i++) {
+            engine.createUser(userId(i), writer);
+        }
+        for (int i = 0; i < userCount; i++) {
+            for (int j = 0; j < follows; j++) {
+                engine.followUser(userId(i), userId(drawUser(random)), writer); // Repeated and self follows are rejected
+            }
+            writer.drain();
+        }
+        for (int i = 0; i < postCount; i++) {
+            engine.createPost(userId(drawUser(random)), postId(i), "post", writer);
+            writer.drain();
+        }
+    }
+
+    /**
+     * Executes one round of commands on every thread and waits for all of them.
+     *
+     * @param round the index of the round, which varies the random choices
+     * @return the first failure of a thread, or {@code null} if every thread completed
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public Throwable runRound(int round) throws InterruptedException {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1); // Released once all threads exist, so they overlap
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            Random random = new Random(seed + (long) round * threadCount + t + 1);
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    execute(random);
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, "stress-" + t);
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return failure.get();
+    }
+
+    /**
+     * Executes the commands of one thread in a round.
+     *
+     * @param random the thread's source of randomness
+     * @throws IOException if executing a command fails
+     */
+    private void execute(Random random) throws IOException {
+        OutputWriter writer = new OutputWriter(); // Output of this thread, discarded after each command
+        boolean[] likeFlags = new boolean[FEED_SIZE];
+        for (long i = 0; i < operations; i++) {
+            int choice = random.nextInt(100);
+            String userID = userId(random.nextInt(userCount));
+            if (choice < 15) {
+                engine.followUser(userID, userId(drawUser(random)), writer);
+            } else if (choice < 30) {
+                engine.unfollowUser(userID, userId(drawUser(random)), writer);
+            } else if (choice < 80) {
+                engine.toggleLike(userID, postId((int) postPopularity.next(random)), writer);
+            } else {
+                for (int j = 0; j < FEED_SIZE; j++) {
+                    likeFlags[j] = random.nextDouble() < LIKE_RATE;
+                }
+                engine.scrollThroughFeed(userID, FEED_SIZE, likeFlags, FEED_SIZE, writer);
+            }
+            writer.drain();
+        }
+    }
+
+    /**
+     * Draws the index of a user by popularity.
+     *
+     * @param random the source of randomness
+     * @return the index of the user
+     */
+    private int drawUser(Random random) {
+        return (int) userPopularity.next(random);
+    }
+
+    /**
+     * Formats the ID of a user.
+     *
+     * @param index the index of the user
+     * @return the user ID
+     */
+    private static String userId(int index) {
+        return "u" + index;
+    }
+
+    /**
+     * Formats the ID of a post.
+     *
+     * @param index the index of the post
+     * @return the post ID
+     */
+    private static String postId(int index) {
+        return "p" + index;
+    }
+}
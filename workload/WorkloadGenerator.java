@@ -0,0 +1,267 @@
+package workload;
+
+import commands.Opcode;
+import output.OutputWriter;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Generates command files in the input format of {@code Main} with power-law popularity. The
+ * file first creates every user and lets each follow users drawn from a Zipf distribution
+ * over the users, so a few users gather most followers. A mix of commands follows, drawn by
+ * weight: posts are written by users drawn from the same distribution, likes and views go
+ * mostly to recent posts, and feeds are requested by uniformly drawn users.
+ * <p>
+ * Nothing is kept per user or post, so workloads of any size can be generated in constant
+ * memory. The generator is configured through system properties:
+ * <ul>
+ *     <li>{@code workload.users}: number of users, 10000 by default,</li>
+ *     <li>{@code workload.follows}: follows per user, 20 by default,</li>
+ *     <li>{@code workload.commands}: commands after the setup, 1000000 by default,</li>
+ *     <li>{@code workload.mix}: weights as {@code command:weight} pairs separated by commas,</li>
+ *     <li>{@code workload.feedSize}: feed size of generate_feed, next_page and scroll_through_feed, 10 by default,</li>
+ *     <li>{@code workload.likeRate}: probability of liking a scrolled post, 0.2 by default,</li>
+ *     <li>{@code workload.exponent}: skew of the Zipf distributions, 1.0 by default,</li>
+ *     <li>{@code workload.seed}: seed of the random choices, 42 by default.</li>
+ * </ul>
+ */
+public class WorkloadGenerator {
+    // Default command mix, by weight
+    private static final String DEFAULT_MIX = "create_post:20,toggle_like:25,see_post:15,generate_feed:15,"
+            + "scroll_through_feed:10,see_all_posts_from_user:5,sort_posts:5,follow_user:4,unfollow_user:1";
+
+    private final int userCount; // Number of users
+    private final int follows; // Follows per user during the setup
+    private final long commandCount; // Commands after the setup
+    private final Opcode[] mix; // Commands that may be drawn
+    private final double[] cumulativeWeights; // Cumulative probability of each command of the mix
+    private final int feedSize; // Feed size of feed commands
+    private final double likeRate; // Probability of liking a scrolled post
+    private final double exponent; // Skew of the Zipf distributions
+    private final Random random; // Source of randomness
+    private final ZipfSampler popularity; // Draws users by popularity
+    private int postCount; // Number of posts created so far
+
+    /**
+     * Constructs a generator.
+     *
+     * @param userCount    the number of users
+     * @param follows      the follows per user during the setup
+     * @param commandCount the commands after the setup
+     * @param mix          the weights as {@code command:weight} pairs separated by commas
+     * @param feedSize     the feed size of feed commands
+     * @param likeRate     the probability of liking a scrolled post
+     * @param exponent     the skew of the Zipf distributions
+     * @param seed         the seed of the random choices
+     */
+    public WorkloadGenerator(int userCount, int follows, long commandCount, String mix,
+                             int feedSize, double likeRate, double exponent, long seed) {
+        this.userCount = userCount;
+        this.follows = Math.min(follows, userCount - 1);
+        this.commandCount = commandCount;
+        this.feedSize = feedSize;
+        this.likeRate = likeRate;
+        this.exponent = exponent;
+        this.random = new Random(seed);
+        this.popularity = new ZipfSampler(userCount, exponent);
+
+        String[] entries = mix.split(",");
+        this.mix = new Opcode[entries.length];
+        this.cumulativeWeights = new double[entries.length];
+        double total = 0;
+        for (int i = 0; i < entries.length; i++) {
+            String[] entry = entries[i].trim().split(":");
+            this.mix[i] = opcodeOf(entry[0]);
+            total += Double.parseDouble(entry[1]);
+            cumulativeWeights[i] = total;
+        }
+        for (int i = 0; i < entries.length; i++) {
+            cumulativeWeights[i] /= total;
+        }
+    }
+
+    /**
+     * Writes a workload to a file, configured through system properties.
+     *
+     * @param args the path of the command file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        WorkloadGenerator generator = new WorkloadGenerator(
+                Integer.getInteger("workload.users", 10000),
+                Integer.getInteger("workload.follows", 20),
+                Long.getLong("workload.commands", 1000000),
+                System.getProperty("workload.mix", DEFAULT_MIX),
+                Integer.getInteger("workload.feedSize", 10),
+                Double.parseDouble(System.getProperty("workload.likeRate", "0.2")),
+                Double.parseDouble(System.getProperty("workload.exponent", "1.0")),
+                Long.getLong("workload.seed", 42));
+        OutputWriter writer = new OutputWriter(args[0], false);
+        generator.generate(writer);
+        writer.close();
+    }
+
+    /**
+     * Finds a command that can be generated by name.
+     *
+     * @param name the command name
+     * @return the opcode
+     */
+    private static Opcode opcodeOf(String name) {
+        for (Opcode opcode : Opcode.values()) {
+            if (opcode.getCommand().equals(name)) {
+                if (opcode == Opcode.SAVE_SNAPSHOT || opcode == Opcode.LOAD_SNAPSHOT || opcode == Opcode.CHECKPOINT
+                        || opcode == Opcode.STATS) {
+                    break; // Persistence and statistics commands are not part of a workload
+                }
+                return opcode;
+            }
+        }
+        throw new IllegalArgumentException("Cannot generate command " + name);
+    }
+
+    /**
+     * Writes the setup and the command mix.
+     *
+     * @param writer the writer of the command file
+     * @throws IOException if writing fails
+     */
+    public void generate(OutputWriter writer) throws IOException {
+        for (int i = 0; i < userCount; i++) {
+            writer.append("create_user ");
+            appendUser(writer, i);
+            writer.append("\n");
+        }
+        for (int i = 0; i < userCount; i++) {
+            for (int j = 0; j < follows; j++) {
+                // Duplicate follows are left in; they exercise the error path like real logs do
+                int followed = popularUser();
+                if (followed == i) {
+                    followed = (followed + 1) % userCount;
+                }
+                appendCommand(writer, Opcode.FOLLOW_USER, i, followed);
+            }
+        }
+        for (long i = 0; i < commandCount; i++) {
+            generateCommand(writer, nextOpcode());
+        }
+    }
+
+    /**
+     * Writes one command of the mix. Commands about posts create a post instead while there are none.
+     *
+     * @param writer the writer of the command file
+     * @param opcode the command to write
+     * @throws IOException if writing fails
+     */
+    private void generateCommand(OutputWriter writer, Opcode opcode) throws IOException {
+        if (postCount == 0 && (opcode == Opcode.SEE_POST || opcode == Opcode.TOGGLE_LIKE)) {
+            opcode = Opcode.CREATE_POST;
+        }
+        switch (opcode) {
+            case CREATE_USER -> {
+                // Users beyond the setup are duplicates, exercising the error path
+                writer.append("create_user ");
+                appendUser(writer, random.nextInt(userCount));
+                writer.append("\n");
+            }
+            case FOLLOW_USER, UNFOLLOW_USER, SEE_ALL_POSTS_FROM_USER ->
+                    appendCommand(writer, opcode, random.nextInt(userCount), popularUser());
+            case CREATE_POST -> {
+                int author = popularUser();
+                writer.append("create_post ");
+                appendUser(writer, author);
+                writer.append(" p").append(postCount).append(" \"Post ").append(postCount).append(" by u")
+                        .append(author).append("\"\n");
+                postCount++;
+            }
+            case SEE_POST, TOGGLE_LIKE -> {
+                writer.append(opcode.getCommand()).append(" ");
+                appendUser(writer, random.nextInt(userCount));
+                writer.append(" p").append(recentPost()).append("\n");
+            }
+            case GENERATE_FEED, NEXT_PAGE -> {
+                writer.append(opcode.getCommand()).append(" ");
+                appendUser(writer, random.nextInt(userCount));
+                writer.append(" ").append(feedSize).append("\n");
+            }
+            case SCROLL_THROUGH_FEED -> {
+                writer.append("scroll_through_feed ");
+                appendUser(writer, random.nextInt(userCount));
+                writer.append(" ").append(feedSize);
+                for (int i = 0; i < feedSize; i++) {
+                    writer.append(random.nextDouble() < likeRate ? " 1" : " 0");
+                }
+                writer.append("\n");
+            }
+            case SORT_POSTS, LIST_FOLLOWERS, LIST_FOLLOWEES -> {
+                writer.append(opcode.getCommand()).append(" ");
+                appendUser(writer, popularUser());
+                writer.append("\n");
+            }
+            default -> throw new IllegalStateException("Cannot generate " + opcode.getCommand());
+        }
+    }
+
+    /**
+     * Draws the next command by weight.
+     *
+     * @return the opcode
+     */
+    private Opcode nextOpcode() {
+        double u = random.nextDouble();
+        for (int i = 0; i < mix.length - 1; i++) {
+            if (u < cumulativeWeights[i]) {
+                return mix[i];
+            }
+        }
+        return mix[mix.length - 1];
+    }
+
+    /**
+     * Draws a user by popularity.
+     *
+     * @return the index of the user
+     */
+    private int popularUser() {
+        return (int) popularity.next(random);
+    }
+
+    /**
+     * Draws an existing post, the most recent ones being the most likely.
+     *
+     * @return the index of the post
+     */
+    private int recentPost() {
+        return postCount - 1 - (int) new ZipfSampler(postCount, exponent).next(random);
+    }
+
+    /**
+     * Writes a command with two user arguments.
+     *
+     * @param writer the writer of the command file
+     * @param opcode the command
+     * @param first  the index of the first user
+     * @param second the index of the second user
+     * @throws IOException if writing fails
+     */
+    private static void appendCommand(OutputWriter writer, Opcode opcode, int first, int second) throws IOException {
+        writer.append(opcode.getCommand()).append(" ");
+        appendUser(writer, first);
+        writer.append(" ");
+        appendUser(writer, second);
+        writer.append("\n");
+    }
+
+    /**
+     * Writes the ID of a user.
+     *
+     * @param writer the writer of the command file
+     * @param user   the index of the user
+     * @throws IOException if writing fails
+     */
+    private static void appendUser(OutputWriter writer, int user) throws IOException {
+        writer.append("u").append(user);
+    }
+}
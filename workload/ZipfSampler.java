@@ -0,0 +1,111 @@
+package workload;
+
+import java.util.Random;
+
+/**
+ * Draws ranks from a Zipf distribution over {@code n} elements by rejection-inversion
+ * (Hormann and Derflinger), so sampling takes constant time and memory however many elements
+ * there are. Rank 0 is the most likely and the probability of rank {@code k} is proportional to
+ * {@code 1 / (k + 1)^exponent}.
+ */
+public class ZipfSampler {
+    private final long n; // Number of elements
+    private final double exponent; // Skew of the distribution
+    private final double hIntegralX1; // Integral of h from 1.5, minus 1
+    private final double hIntegralN; // Integral of h up to n + 0.5
+    private final double s; // Acceptance threshold of the squeeze
+
+    /**
+     * Constructs a sampler.
+     *
+     * @param n        the number of elements, at least 1
+     * @param exponent the skew, greater than 0
+     */
+    public ZipfSampler(long n, double exponent) {
+        if (n < 1 || !(exponent > 0)) {
+            throw new IllegalArgumentException("Zipf needs n >= 1 and exponent > 0");
+        }
+        this.n = n;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1;
+        this.hIntegralN = hIntegral(n + 0.5);
+        this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    /**
+     * Draws a rank.
+     *
+     * @param random the source of randomness
+     * @return the rank, from 0 to {@code n - 1}
+     */
+    public long next(Random random) {
+        while (true) {
+            double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+            double x = hIntegralInverse(u);
+            long k = (long) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > n) {
+                k = n;
+            }
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k - 1;
+            }
+        }
+    }
+
+    /**
+     * Evaluates the integral of the hat function.
+     *
+     * @param x the upper bound
+     * @return the integral
+     */
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return helper2((1 - exponent) * logX) * logX;
+    }
+
+    /**
+     * Evaluates the unnormalized probability of a real-valued rank.
+     *
+     * @param x the rank, starting at 1
+     * @return {@code x^-exponent}
+     */
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    /**
+     * Inverts {@link #hIntegral(double)}.
+     *
+     * @param x the integral
+     * @return the upper bound
+     */
+    private double hIntegralInverse(double x) {
+        double t = x * (1 - exponent);
+        if (t < -1) {
+            t = -1; // Guards against rounding errors
+        }
+        return Math.exp(helper1(t) * x);
+    }
+
+    /**
+     * Computes {@code log(1 + x) / x} accurately near 0.
+     *
+     * @param x the argument
+     * @return the value
+     */
+    private static double helper1(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+    }
+
+    /**
+     * Computes {@code (exp(x) - 1) / x} accurately near 0.
+     *
+     * @param x the argument
+     * @return the value
+     */
+    private static double helper2(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x * (1.0 / 3) * (1 + 0.25 * x));
+    }
+}